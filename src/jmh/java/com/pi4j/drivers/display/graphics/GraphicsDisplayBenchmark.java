@@ -0,0 +1,118 @@
+package com.pi4j.drivers.display.graphics;
+
+import com.pi4j.drivers.display.BitmapFont;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing operations and full screen transfers of a 240 x 320 RGB_565 display, for each rotation and
+ * buffer mode. The driver just keeps a checksum of the received data, so the numbers don't include bus transfers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class GraphicsDisplayBenchmark {
+
+    @Param({"ROTATE_0", "ROTATE_90", "ROTATE_180", "ROTATE_270"})
+    public String rotation;
+
+    @Param({"RGB_888", "NATIVE"})
+    public String bufferMode;
+
+    private SinkDriver driver;
+    private GraphicsDisplay display;
+    private int[] image;
+    private BitmapFont font;
+    private int color;
+
+    @Setup
+    public void setUp() {
+        driver = new SinkDriver(240, 320, PixelFormat.RGB_565);
+        display = new GraphicsDisplay(
+                driver, GraphicsDisplay.Rotation.valueOf(rotation), GraphicsDisplay.BufferMode.valueOf(bufferMode));
+        // Transfers only take place in explicit flush calls.
+        display.setTransferDelayMillis(-1);
+        Random random = new Random(0);
+        image = new int[64 * 64];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = random.nextInt(0x1000000);
+        }
+        font = BitmapFont.get5x8Font();
+    }
+
+    @TearDown
+    public void tearDown() {
+        display.close();
+    }
+
+    @Benchmark
+    public void fillRect() {
+        display.fillRect(10, 10, 100, 100, color++);
+    }
+
+    @Benchmark
+    public void drawImage() {
+        display.drawImage(20, 20, 64, 64, image);
+    }
+
+    @Benchmark
+    public int renderText() {
+        return display.renderText(0, 100, "The quick brown fox 0123456789", font, color++, 2, 2);
+    }
+
+    /** A full screen update, covering the conversion and rotation mapping in transferBuffer(). */
+    @Benchmark
+    public int flushFullScreen() {
+        display.fillRect(0, 0, display.getWidth(), display.getHeight(), color++);
+        display.flush();
+        return driver.checksum;
+    }
+
+    /** A partial update of a small area, dominated by the per-transfer overhead. */
+    @Benchmark
+    public int flushSmallArea() {
+        display.fillRect(50, 60, 16, 16, color++);
+        display.flush();
+        return driver.checksum;
+    }
+
+    /** A driver discarding the data, apart from a checksum that keeps the transfers from being optimized away. */
+    static class SinkDriver implements GraphicsDisplayDriver {
+        private final GraphicsDisplayInfo displayInfo;
+        int checksum;
+
+        SinkDriver(int width, int height, PixelFormat pixelFormat) {
+            displayInfo = new GraphicsDisplayInfo(width, height, pixelFormat);
+        }
+
+        @Override
+        public GraphicsDisplayInfo getDisplayInfo() {
+            return displayInfo;
+        }
+
+        @Override
+        public void setPixels(int x, int y, int width, int height, byte[] data) {
+            checksum += data[0] + data[(width * height * displayInfo.getPixelFormat().getBitCount() + 7) / 8 - 1];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.pi4j.drivers.display.graphics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the pixel format conversion kernels for a 240 x 240 frame, converted row by row as in
+ * GraphicsDisplay.transferBuffer().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class PixelFormatBenchmark {
+
+    private static final int SIZE = 240;
+
+    @Param
+    public PixelFormat format;
+
+    private int[] rgb;
+    private short[] nativeValues;
+    private byte[] target;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        rgb = new int[SIZE * SIZE];
+        nativeValues = new short[SIZE * SIZE];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = random.nextInt(0x1000000);
+            nativeValues[i] = (short) format.fromRgb(rgb[i]);
+        }
+        target = new byte[SIZE * SIZE * 3];
+    }
+
+    /** Row-wise conversion, as used for ROTATE_0 and ROTATE_180. */
+    @Benchmark
+    public byte[] writeRgb() {
+        int bitOffset = 0;
+        for (int y = 0; y < SIZE; y++) {
+            bitOffset += format.writeRgb(rgb, y * SIZE, 1, target, bitOffset, SIZE);
+        }
+        return target;
+    }
+
+    /** Column-wise conversion with a stride of one row, as used for ROTATE_90 and ROTATE_270. */
+    @Benchmark
+    public byte[] writeRgbStrided() {
+        int bitOffset = 0;
+        for (int x = 0; x < SIZE; x++) {
+            bitOffset += format.writeRgb(rgb, x, SIZE, target, bitOffset, SIZE);
+        }
+        return target;
+    }
+
+    /** Conversion of values already in the target format, as used for the native buffer mode. */
+    @Benchmark
+    public byte[] writeNative() {
+        if (format.getBitCount() > 16) {
+            return target;
+        }
+        int bitOffset = 0;
+        for (int y = 0; y < SIZE; y++) {
+            bitOffset += format.writeNative(nativeValues, y * SIZE, 1, target, bitOffset, SIZE);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public byte[] fillRgb() {
+        format.fillRgb(target, 0, SIZE * SIZE, 0x336699);
+        return target;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pi4j.drivers.display.graphics;
+
+/**
+ * Per-channel color correction, combining gamma, brightness and white balance into one lookup table per channel.
+ * The tables are computed once, so correcting a pixel just takes one table lookup per channel.
+ * <p>
+ * Instances are immutable and can be shared between displays.
+ */
+public final class ColorCorrection {
+
+    private final byte[] red = new byte[256];
+    private final byte[] green = new byte[256];
+    private final byte[] blue = new byte[256];
+
+    /**
+     * Creates a color correction with the given gamma exponent and brightness, without white balance adjustment.
+     *
+     * @param gamma
+     *            The exponent applied to the normalized channel values; 1 for linear output. LEDs typically look
+     *            right with values between 2 and 2.8.
+     * @param brightness
+     *            The brightness between 0 and 255, scaling all channels after gamma correction.
+     */
+    public ColorCorrection(double gamma, int brightness) {
+        this(gamma, brightness, 0xffffff);
+    }
+
+    /**
+     * Creates a color correction with the given gamma exponent, brightness and white point.
+     *
+     * @param whitePoint
+     *            The 24 bit RGB color full white is mapped to (before applying the brightness), scaling each channel
+     *            individually to compensate for the color temperature of the display.
+     */
+    public ColorCorrection(double gamma, int brightness, int whitePoint) {
+        if (gamma <= 0) {
+            throw new IllegalArgumentException("gamma must be > 0");
+        }
+        brightness = Math.max(0, Math.min(brightness, 255));
+        fillTable(red, gamma, brightness * ((whitePoint >> 16) & 0xff));
+        fillTable(green, gamma, brightness * ((whitePoint >> 8) & 0xff));
+        fillTable(blue, gamma, brightness * (whitePoint & 0xff));
+    }
+
+    /** Returns the corrected 24 bit RGB value for the given 24 bit RGB value. */
+    public int apply(int rgb) {
+        return ((red[(rgb >> 16) & 0xff] & 0xff) << 16)
+                | ((green[(rgb >> 8) & 0xff] & 0xff) << 8)
+                | (blue[rgb & 0xff] & 0xff);
+    }
+
+    /** Corrects count 24 bit RGB values in place, starting at the given offset. */
+    public void apply(int[] rgb, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            rgb[i] = apply(rgb[i]);
+        }
+    }
+
+    /** Returns the corrected value of the red channel for the given 8 bit value. */
+    public int red(int value) {
+        return red[value] & 0xff;
+    }
+
+    /** Returns the corrected value of the green channel for the given 8 bit value. */
+    public int green(int value) {
+        return green[value] & 0xff;
+    }
+
+    /** Returns the corrected value of the blue channel for the given 8 bit value. */
+    public int blue(int value) {
+        return blue[value] & 0xff;
+    }
+
+    /** Fills the table with the gamma curve, scaled by the given factor in 1/(255 * 255) units. */
+    private static void fillTable(byte[] table, double gamma, int scale) {
+        for (int i = 0; i < 256; i++) {
+            table[i] = (byte) Math.round(Math.pow(i / 255.0, gamma) * scale / 255.0);
+        }
+    }
+}
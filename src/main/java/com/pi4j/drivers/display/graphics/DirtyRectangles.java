@@ -0,0 +1,149 @@
+package com.pi4j.drivers.display.graphics;
+
+/**
+ * Keeps track of modified screen areas as a bounded list of disjoint rectangles.
+ * <p>
+ * Rectangles are merged when they overlap, when the bounding box is cheaper to transfer than the separate
+ * rectangles (taking a fixed per-transfer overhead into account), or when the list is full. Coordinates use
+ * min/max bounds with exclusive max values, matching the GraphicsDisplay internals.
+ */
+final class DirtyRectangles implements DirtyRegion {
+
+    private final int maxCount;
+    private final int transferOverhead;
+    private final int[] xMin;
+    private final int[] yMin;
+    private final int[] xMax;
+    private final int[] yMax;
+    private int count;
+
+    /**
+     * Creates a dirty region tracker.
+     *
+     * @param maxCount
+     *            The maximum number of rectangles that are kept apart.
+     * @param transferOverhead
+     *            The estimated cost of a single transfer, in pixels.
+     */
+    DirtyRectangles(int maxCount, int transferOverhead) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("maxCount must be >= 1");
+        }
+        this.maxCount = maxCount;
+        this.transferOverhead = transferOverhead;
+        xMin = new int[maxCount];
+        yMin = new int[maxCount];
+        xMax = new int[maxCount];
+        yMax = new int[maxCount];
+    }
+
+    /** Adds the given area, merging it with existing rectangles where appropriate. */
+    @Override
+    public void add(int x0, int y0, int x1, int y1) {
+        boolean merged;
+        do {
+            merged = false;
+            for (int i = 0; i < count; i++) {
+                if (x0 >= xMin[i] && y0 >= yMin[i] && x1 <= xMax[i] && y1 <= yMax[i]) {
+                    return; // Already covered
+                }
+                int mx0 = Math.min(x0, xMin[i]);
+                int my0 = Math.min(y0, yMin[i]);
+                int mx1 = Math.max(x1, xMax[i]);
+                int my1 = Math.max(y1, yMax[i]);
+                if (intersects(i, x0, y0, x1, y1)
+                        || area(mx0, my0, mx1, my1) <= area(x0, y0, x1, y1) + area(i) + transferOverhead) {
+                    remove(i);
+                    x0 = mx0;
+                    y0 = my0;
+                    x1 = mx1;
+                    y1 = my1;
+                    merged = true;
+                    break;
+                }
+            }
+            if (!merged && count == maxCount) {
+                // No room left: merge with the rectangle that results in the smallest bounding box growth.
+                int best = 0;
+                long bestGrowth = Long.MAX_VALUE;
+                for (int i = 0; i < count; i++) {
+                    long growth = area(Math.min(x0, xMin[i]), Math.min(y0, yMin[i]),
+                            Math.max(x1, xMax[i]), Math.max(y1, yMax[i])) - area(i);
+                    if (growth < bestGrowth) {
+                        bestGrowth = growth;
+                        best = i;
+                    }
+                }
+                x0 = Math.min(x0, xMin[best]);
+                y0 = Math.min(y0, yMin[best]);
+                x1 = Math.max(x1, xMax[best]);
+                y1 = Math.max(y1, yMax[best]);
+                remove(best);
+                merged = true;
+            }
+        } while (merged);
+
+        xMin[count] = x0;
+        yMin[count] = y0;
+        xMax[count] = x1;
+        yMax[count] = y1;
+        count++;
+    }
+
+    @Override
+    public void clear() {
+        count = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int getXMin(int index) {
+        return xMin[index];
+    }
+
+    @Override
+    public int getYMin(int index) {
+        return yMin[index];
+    }
+
+    @Override
+    public int getXMax(int index) {
+        return xMax[index];
+    }
+
+    @Override
+    public int getYMax(int index) {
+        return yMax[index];
+    }
+
+    // Private methods
+
+    private boolean intersects(int i, int x0, int y0, int x1, int y1) {
+        return x0 < xMax[i] && x1 > xMin[i] && y0 < yMax[i] && y1 > yMin[i];
+    }
+
+    private long area(int i) {
+        return area(xMin[i], yMin[i], xMax[i], yMax[i]);
+    }
+
+    private static long area(int x0, int y0, int x1, int y1) {
+        return (long) (x1 - x0) * (y1 - y0);
+    }
+
+    private void remove(int index) {
+        count--;
+        xMin[index] = xMin[count];
+        yMin[index] = yMin[count];
+        xMax[index] = xMax[count];
+        yMax[index] = yMax[count];
+    }
+}
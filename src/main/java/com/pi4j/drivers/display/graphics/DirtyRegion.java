@@ -0,0 +1,27 @@
+package com.pi4j.drivers.display.graphics;
+
+/**
+ * Keeps track of the modified areas of a display buffer, exposing them as a list of disjoint rectangles
+ * to be transferred on flush. Coordinates use min/max bounds with exclusive max values.
+ */
+interface DirtyRegion {
+
+    /** Marks the given area as modified. */
+    void add(int xMin, int yMin, int xMax, int yMax);
+
+    /** Removes all modified areas. */
+    void clear();
+
+    boolean isEmpty();
+
+    /** The number of disjoint rectangles covering the modified areas. */
+    int size();
+
+    int getXMin(int index);
+
+    int getYMin(int index);
+
+    int getXMax(int index);
+
+    int getYMax(int index);
+}
@@ -0,0 +1,168 @@
+package com.pi4j.drivers.display.graphics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Keeps track of modified areas at the granularity of fixed size square tiles.
+ * <p>
+ * Marking an area only sets bits in a compact BitSet, so the cost is independent of the number of updates.
+ * When the rectangles are requested, horizontally adjacent dirty tiles are combined into runs, and runs
+ * with identical horizontal extent in subsequent tile rows are combined into taller rectangles.
+ */
+final class DirtyTiles implements DirtyRegion {
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    private final BitSet tiles;
+
+    /** Rectangle coordinates in tiles, computed lazily from the tile bits. Four entries per rectangle. */
+    private int[] rectangles = new int[16];
+    private int count;
+    private boolean rectanglesValid = true;
+
+    DirtyTiles(int width, int height, int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tileSize must be >= 1");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        this.tiles = new BitSet(columns * rows);
+    }
+
+    @Override
+    public void add(int xMin, int yMin, int xMax, int yMax) {
+        int column0 = xMin / tileSize;
+        int column1 = (xMax + tileSize - 1) / tileSize;
+        int row1 = (yMax + tileSize - 1) / tileSize;
+        for (int row = yMin / tileSize; row < row1; row++) {
+            tiles.set(row * columns + column0, row * columns + column1);
+        }
+        rectanglesValid = false;
+    }
+
+    @Override
+    public void clear() {
+        tiles.clear();
+        count = 0;
+        rectanglesValid = true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tiles.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        updateRectangles();
+        return count;
+    }
+
+    @Override
+    public int getXMin(int index) {
+        return rectangles[index * 4] * tileSize;
+    }
+
+    @Override
+    public int getYMin(int index) {
+        return rectangles[index * 4 + 1] * tileSize;
+    }
+
+    @Override
+    public int getXMax(int index) {
+        return Math.min(width, rectangles[index * 4 + 2] * tileSize);
+    }
+
+    @Override
+    public int getYMax(int index) {
+        return Math.min(height, rectangles[index * 4 + 3] * tileSize);
+    }
+
+    // Private methods
+
+    /** Combines the dirty tiles into runs, merging runs with the same extent in subsequent rows. */
+    private void updateRectangles() {
+        if (rectanglesValid) {
+            return;
+        }
+        count = 0;
+        // Rectangles that were extended in the previous tile row; only these are candidates for extension.
+        int previousStart = 0;
+        for (int row = 0; row < rows; row++) {
+            int currentStart = count;
+            int rowOffset = row * columns;
+            int column = tiles.nextSetBit(rowOffset);
+            while (column != -1 && column < rowOffset + columns) {
+                int end = tiles.nextClearBit(column);
+                end = Math.min(end, rowOffset + columns);
+                int column0 = column - rowOffset;
+                int column1 = end - rowOffset;
+                if (!extend(previousStart, currentStart, column0, column1, row)) {
+                    append(column0, row, column1, row + 1);
+                }
+                column = tiles.nextSetBit(end);
+            }
+            // Move extended rectangles into the candidate range for the next row.
+            previousStart = compactCandidates(previousStart, currentStart, row + 1);
+        }
+        rectanglesValid = true;
+    }
+
+    /** Tries to extend a rectangle from the previous row with the same column range down to the given row. */
+    private boolean extend(int from, int to, int column0, int column1, int row) {
+        for (int i = from; i < to; i++) {
+            int base = i * 4;
+            if (rectangles[base] == column0 && rectangles[base + 2] == column1 && rectangles[base + 3] == row) {
+                rectangles[base + 3] = row + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reorders the rectangles so that all rectangles ending at the given row are at the end of the list and
+     * returns the start index of this range.
+     */
+    private int compactCandidates(int from, int currentStart, int rowEnd) {
+        // Rectangles in [from, currentStart) that were not extended are final; move extended ones to the end
+        // of that range, so the candidate range stays contiguous together with the new rectangles.
+        int write = currentStart;
+        for (int i = currentStart - 1; i >= from; i--) {
+            if (rectangles[i * 4 + 3] == rowEnd) {
+                write--;
+                swap(i, write);
+            }
+        }
+        return write;
+    }
+
+    private void swap(int i, int j) {
+        if (i != j) {
+            for (int k = 0; k < 4; k++) {
+                int tmp = rectangles[i * 4 + k];
+                rectangles[i * 4 + k] = rectangles[j * 4 + k];
+                rectangles[j * 4 + k] = tmp;
+            }
+        }
+    }
+
+    private void append(int column0, int row0, int column1, int row1) {
+        if (count * 4 + 4 > rectangles.length) {
+            rectangles = Arrays.copyOf(rectangles, rectangles.length * 2);
+        }
+        int base = count * 4;
+        rectangles[base] = column0;
+        rectangles[base + 1] = row0;
+        rectangles[base + 2] = column1;
+        rectangles[base + 3] = row1;
+        count++;
+    }
+}
@@ -3,32 +3,132 @@ package com.pi4j.drivers.display.graphics;
 import com.pi4j.drivers.display.BitmapFont;
 
 import java.io.Closeable;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 public class GraphicsDisplay implements Closeable {
-    // TODO(https://github.com/Pi4J/pi4j/issues/475): Remove or update this limitation.
-    private static final int MAX_TRANSFER_SIZE = 4000;
+    /** The maximum number of separate rectangles tracked for modified screen areas. */
+    private static final int MAX_DIRTY_RECTANGLES = 8;
+    /**
+     * The estimated per-transfer cost in pixels, used to decide whether two modified areas should be merged.
+     * This accounts for command and address window overhead of typical SPI displays.
+     */
+    private static final int TRANSFER_OVERHEAD_PIXELS = 64;
+    /** The number of rows rotated at a time for ROTATE_90 and ROTATE_270 transfers. */
+    private static final int ROTATION_BAND_HEIGHT = 16;
 
-    enum Rotation {
+    /** The clockwise rotation of the display content relative to the native orientation of the driver. */
+    public enum Rotation {
         ROTATE_0, ROTATE_90, ROTATE_180, ROTATE_270
     }
 
+    /** The storage format of the display buffer. */
+    public enum BufferMode {
+        /** Pixels are stored as 24 bit RGB values and converted to the driver pixel format on each transfer. */
+        RGB_888,
+        /**
+         * Pixels are stored in the driver pixel format, converting colors once when drawing. For formats with up to
+         * 16 bits, this halves the buffer memory and reduces the transfer to splitting the stored values into bytes.
+         * Reading pixels back (Canvas.getPixel() and alpha blending) sees the reduced color depth. For RGB_888
+         * drivers and indexed formats, this is the same as the RGB_888 mode.
+         */
+        NATIVE
+    }
+
+    /** Dithering modes for indexed pixel formats, see setDithering(). */
+    public enum Dithering {
+        /** Maps each pixel to the nearest palette color. */
+        NONE,
+        /** Adds a position dependent 4x4 Bayer threshold before mapping; stable across partial updates. */
+        ORDERED,
+        /**
+         * Diffuses the quantization error to neighbouring pixels. The error is diffused within each transferred
+         * area, so this works best when full frames are transferred, for instance for e-paper displays.
+         */
+        FLOYD_STEINBERG
+    }
+
     protected final GraphicsDisplayDriver driver;
     private final Object lock = new Object();
-    private final int[] displayBuffer;
+    /** Guards the transfer buffers and driver access; may be acquired while holding lock, but not vice versa. */
+    private final Object transferLock = new Object();
+    private final PixelBuffer displayBuffer;
     private final byte[] transferBuffer;
-    private final Timer timer = new Timer();
+    /** An off-heap replacement for transferBuffer, see setOffHeapTransfer(). */
+    private Arena transferArena;
+    private MemorySegment transferSegment;
+    /** Converts pixels to palette indices for indexed formats; null for direct color formats. */
+    private final IndexedColorConverter indexedConverter;
+    /** Holds the RGB values of a row for color correction and indexed conversion. */
+    private final int[] rowBuffer;
+    private ColorCorrection colorCorrection;
+    /**
+     * Holds a band of rotated rows for ROTATE_90 and ROTATE_270, so they can be converted linearly instead of
+     * walking the display buffer by columns; null for the other rotations.
+     */
+    private final PixelBuffer rotationBuffer;
+    /** Holds converted frames for streamFrame(); grows on demand. */
+    private byte[] streamBuffer = new byte[0];
+    /** A copy of the pixels last transferred to the driver; only allocated if content diffing is enabled. */
+    private PixelBuffer transmittedBuffer;
+    /** False until the whole screen has been transferred after enabling content diffing. */
+    private boolean transmittedBufferValid;
+
+    // Double buffering state; only allocated if enabled.
+    private PixelBuffer backBuffer;
+    /** Regions of the back buffer to be transferred, four coordinates per region. */
+    private int[] backBufferRegions = new int[0];
+    private int backBufferRegionCount;
+    private ExecutorService transferExecutor;
+    private volatile Future<?> pendingTransfer;
+    /** Waits for the start of a frame while a thread holding the lock releases it; created on demand. */
+    private ExecutorService frameStartExecutor;
 
-    private int modifiedXMax = Integer.MIN_VALUE;
-    private int modifiedXMin = Integer.MAX_VALUE;
-    private int modifiedYMax = Integer.MIN_VALUE;
-    private int modifiedYMin = Integer.MAX_VALUE;
-    private TimerTask pendingUpdate = null;
+    private DirtyRegion dirtyRegion = new DirtyRectangles(MAX_DIRTY_RECTANGLES, TRANSFER_OVERHEAD_PIXELS);
+    /** Created on demand for delayed transfers and the frame rate presenter. */
+    private ScheduledExecutorService scheduler;
+    private final Runnable delayedFlush = this::delayedFlush;
+    private ScheduledFuture<?> pendingUpdate = null;
     private int transferDelayMillis = 15;
+
+    // Presenter state, see setFrameRate()
+    private int frameRate;
+    private long framePeriodNanos;
+    private ScheduledFuture<?> presenter;
+    private long presenterStartNanos;
+    private long lastFrameTick;
+    private long droppedFrameCount;
+    private int windowFrameCount;
+    private long windowStartNanos;
+    private double achievedFrameRate;
+
+    // Queued rendering state, see setQueuedRendering()
+    private final Canvas canvas = new Canvas();
+    private final ConcurrentLinkedQueue<Runnable> drawQueue = new ConcurrentLinkedQueue<>();
+    private volatile Thread renderThread;
+    private volatile RuntimeException renderFailure;
+
+    // Hardware scrolling state, see scroll()
+    private int hardwareScrollTop = -1;
+    private int hardwareScrollBottom = -1;
+    private int hardwareScrollOffset;
+
     private final int displayWidth;
     private final int displayHeight;
+    /** The rotation applied in software; ROTATE_0 if the driver rotates in hardware. */
     private final Rotation rotation;
 
     public GraphicsDisplay(GraphicsDisplayDriver driver) {
@@ -36,29 +136,100 @@ public class GraphicsDisplay implements Closeable {
     }
 
     public GraphicsDisplay(GraphicsDisplayDriver driver, Rotation rotation) {
+        this(driver, rotation, BufferMode.RGB_888);
+    }
+
+    public GraphicsDisplay(GraphicsDisplayDriver driver, BufferMode bufferMode) {
+        this(driver, Rotation.ROTATE_0, bufferMode);
+    }
+
+    public GraphicsDisplay(GraphicsDisplayDriver driver, Rotation rotation, BufferMode bufferMode) {
         this.driver = driver;
-        this.rotation = rotation;
-        if (rotation == Rotation.ROTATE_0 || rotation == Rotation.ROTATE_180) {
+        if (driver.supportsRotation(rotation)) {
+            // The driver reports the rotated dimensions and takes rotated coordinates from here on.
+            driver.setRotation(rotation);
+            this.rotation = Rotation.ROTATE_0;
+        } else {
+            this.rotation = rotation;
+        }
+        if (this.rotation == Rotation.ROTATE_0 || this.rotation == Rotation.ROTATE_180) {
             displayWidth = driver.getDisplayInfo().getWidth();
             displayHeight = driver.getDisplayInfo().getHeight();
         } else {
             displayWidth = driver.getDisplayInfo().getHeight();
             displayHeight = driver.getDisplayInfo().getWidth();
         }
-        displayBuffer = new int[displayWidth * displayHeight];
-        transferBuffer = new byte[Math.min(
-                MAX_TRANSFER_SIZE,
-                (displayWidth * displayHeight * driver.getDisplayInfo().getPixelFormat().getBitCount() + 7) / 8)];
+
+        GraphicsDisplayInfo displayInfo = driver.getDisplayInfo();
+        int bitCount = displayInfo.getPixelFormat().getBitCount();
+        displayBuffer = bufferMode == BufferMode.NATIVE && bitCount <= 16
+                && !displayInfo.getPixelFormat().isIndexed()
+                ? new NativePixelBuffer(displayInfo.getPixelFormat(), displayWidth * displayHeight)
+                : new RgbPixelBuffer(displayWidth * displayHeight);
+        int rowSize = (displayInfo.getWidth() * bitCount + 7) / 8;
+        if (rowSize > displayInfo.getMaxTransferSize()) {
+            throw new IllegalArgumentException("The maximum transfer size of the driver ("
+                    + displayInfo.getMaxTransferSize() + ") must fit at least one row (" + rowSize + " bytes)");
+        }
+        transferBuffer = new byte[(int) Math.min(
+                displayInfo.getMaxTransferSize(),
+                ((long) displayWidth * displayHeight * bitCount + 7) / 8)];
+        rowBuffer = new int[displayInfo.getWidth()];
+        rotationBuffer = this.rotation == Rotation.ROTATE_90 || this.rotation == Rotation.ROTATE_270
+                ? displayBuffer.newBuffer(ROTATION_BAND_HEIGHT * displayInfo.getWidth())
+                : null;
+        indexedConverter = displayInfo.getPixelFormat().isIndexed()
+                ? new IndexedColorConverter(displayInfo.getPixelFormat(), displayInfo.getPalette())
+                : null;
     }
 
     @Override
     public void close() {
-        flush();
-        driver.close();
+        try {
+            setQueuedRendering(false);
+        } finally {
+            synchronized (lock) {
+                flush();
+                awaitTransfer();
+                if (transferExecutor != null) {
+                    transferExecutor.shutdown();
+                }
+                if (frameStartExecutor != null) {
+                    frameStartExecutor.shutdown();
+                    frameStartExecutor = null;
+                }
+                if (scheduler != null) {
+                    scheduler.shutdownNow();
+                }
+                setOffHeapTransfer(false);
+            }
+            driver.close();
+        }
+    }
+
+    /**
+     * Draws a circular arc around the given center. Angles are in degrees, with 0 at the 3 o'clock position and
+     * positive values meaning counter-clockwise rotation, as in java.awt.Graphics.
+     */
+    public void drawArc(int cx, int cy, int radius, int startAngle, int arcAngle, int color) {
+        edit(canvas -> Rasterizer.drawArc(canvas, cx, cy, radius, startAngle, arcAngle, color));
+    }
+
+    /** Draws the outline of a circle with the given center and radius. */
+    public void drawCircle(int cx, int cy, int radius, int color) {
+        edit(canvas -> Rasterizer.drawCircle(canvas, cx, cy, radius, color));
     }
 
-    /** Draws an image at the given coordinates */
+    /**
+     * Draws an image at the given coordinates. In queued rendering mode, the pixels are copied before the
+     * command is queued.
+     */
     public void drawImage(int x, int y, int width, int height, int[] rgb888pixels) {
+        if (isQueued()) {
+            int[] copy = Arrays.copyOf(rgb888pixels, width * height);
+            enqueue(() -> drawImage(x, y, width, height, copy));
+            return;
+        }
         synchronized (lock) {
             int xMin = Math.max(0, x);
             int yMin = Math.max(0, y);
@@ -68,18 +239,167 @@ public class GraphicsDisplay implements Closeable {
                 return;
             }
             for (int targetY = yMin; targetY < yMax; targetY++) {
-                System.arraycopy(
+                displayBuffer.setRgb(
+                        pixelAddress(xMin, targetY),
                         rgb888pixels,
                         (targetY - y) * width + xMin - x,
-                        displayBuffer,
-                        pixelAddress(xMin, targetY),
                         xMax - xMin);
             }
             markModified(xMin, yMin, xMax, yMax);
         }
     }
 
+    /**
+     * Draws an image at the given coordinates, blending it with the current content using the given global alpha
+     * value between 0 (transparent) and 255 (opaque). In queued rendering mode, the pixels are copied before the
+     * command is queued.
+     */
+    public void drawImage(int x, int y, int width, int height, int[] rgb888pixels, int alpha) {
+        if (alpha >= 255) {
+            drawImage(x, y, width, height, rgb888pixels);
+            return;
+        }
+        if (alpha <= 0) {
+            return;
+        }
+        if (isQueued()) {
+            int[] copy = Arrays.copyOf(rgb888pixels, width * height);
+            enqueue(() -> drawImage(x, y, width, height, copy, alpha));
+            return;
+        }
+        synchronized (lock) {
+            int xMin = Math.max(0, x);
+            int yMin = Math.max(0, y);
+            int xMax = Math.min(x + width, displayWidth);
+            int yMax = Math.min(y + height, displayHeight);
+            if (xMax <= xMin || yMax <= yMin) {
+                return;
+            }
+            // Map 0..255 to 0..256, so the blend can divide by shifting.
+            int a = alpha + (alpha >> 7);
+            for (int targetY = yMin; targetY < yMax; targetY++) {
+                int src = (targetY - y) * width + xMin - x;
+                int dst = pixelAddress(xMin, targetY);
+                int end = dst + xMax - xMin;
+                while (dst < end) {
+                    displayBuffer.setRgb(dst, blend(displayBuffer.getRgb(dst), rgb888pixels[src++], a));
+                    dst++;
+                }
+            }
+            markModified(xMin, yMin, xMax, yMax);
+        }
+    }
+
+    /**
+     * Draws an image with 32 bit ARGB pixels at the given coordinates, blending each pixel with the current
+     * content according to its alpha value. In queued rendering mode, the pixels are copied before the
+     * command is queued.
+     */
+    public void drawImageArgb(int x, int y, int width, int height, int[] argb8888pixels) {
+        if (isQueued()) {
+            int[] copy = Arrays.copyOf(argb8888pixels, width * height);
+            enqueue(() -> drawImageArgb(x, y, width, height, copy));
+            return;
+        }
+        synchronized (lock) {
+            int xMin = Math.max(0, x);
+            int yMin = Math.max(0, y);
+            int xMax = Math.min(x + width, displayWidth);
+            int yMax = Math.min(y + height, displayHeight);
+            if (xMax <= xMin || yMax <= yMin) {
+                return;
+            }
+            for (int targetY = yMin; targetY < yMax; targetY++) {
+                int src = (targetY - y) * width + xMin - x;
+                int dst = pixelAddress(xMin, targetY);
+                int end = dst + xMax - xMin;
+                while (dst < end) {
+                    int argb = argb8888pixels[src++];
+                    int alpha = argb >>> 24;
+                    if (alpha == 255) {
+                        displayBuffer.setRgb(dst, argb & 0xffffff);
+                    } else if (alpha != 0) {
+                        displayBuffer.setRgb(dst, blend(displayBuffer.getRgb(dst), argb, alpha + (alpha >> 7)));
+                    }
+                    dst++;
+                }
+            }
+            markModified(xMin, yMin, xMax, yMax);
+        }
+    }
+
+    /** Draws a line between the given points, including both end points. */
+    public void drawLine(int x0, int y0, int x1, int y1, int color) {
+        edit(canvas -> Rasterizer.drawLine(canvas, x0, y0, x1, y1, color));
+    }
+
+    /** Draws the closed outline of the polygon with the given vertices. */
+    public void drawPolygon(int[] xPoints, int[] yPoints, int count, int color) {
+        int[] xs = Arrays.copyOf(xPoints, count);
+        int[] ys = Arrays.copyOf(yPoints, count);
+        edit(canvas -> Rasterizer.drawPolygon(canvas, xs, ys, count, color));
+    }
+
+    /** Draws the outline of a rectangle. */
+    public void drawRect(int x, int y, int width, int height, int color) {
+        edit(canvas -> Rasterizer.drawRect(canvas, x, y, width, height, color));
+    }
+
+    /** Draws the outline of a rectangle with corners rounded with the given radius. */
+    public void drawRoundRect(int x, int y, int width, int height, int radius, int color) {
+        edit(canvas -> Rasterizer.drawRoundRect(canvas, x, y, width, height, radius, color));
+    }
+
+    /**
+     * Runs the given editor with a canvas providing direct access to the display buffer, acquiring the display lock
+     * only once and marking the bounding box of all modified pixels only once at the end. This avoids the per-call
+     * overhead of setPixel when drawing many individual pixels, for instance for charts or point clouds.
+     * <p>
+     * The canvas must not be used outside the editor. In queued rendering mode, the editor runs on the render
+     * thread.
+     */
+    public void edit(Consumer<Canvas> editor) {
+        if (isQueued()) {
+            enqueue(() -> edit(editor));
+            return;
+        }
+        synchronized (lock) {
+            if (canvas.depth++ == 0) {
+                canvas.xMin = Integer.MAX_VALUE;
+                canvas.yMin = Integer.MAX_VALUE;
+                canvas.xMax = Integer.MIN_VALUE;
+                canvas.yMax = Integer.MIN_VALUE;
+            }
+            try {
+                editor.accept(canvas);
+            } finally {
+                if (--canvas.depth == 0 && canvas.xMax > canvas.xMin) {
+                    markModified(canvas.xMin, canvas.yMin, canvas.xMax, canvas.yMax);
+                }
+            }
+        }
+    }
+
+    /** Fills a circle with the given center and radius. */
+    public void fillCircle(int cx, int cy, int radius, int color) {
+        edit(canvas -> Rasterizer.fillCircle(canvas, cx, cy, radius, color));
+    }
+
+    /**
+     * Fills the polygon with the given vertices, using the even-odd rule. A pixel is filled if its center is
+     * inside the polygon.
+     */
+    public void fillPolygon(int[] xPoints, int[] yPoints, int count, int color) {
+        int[] xs = Arrays.copyOf(xPoints, count);
+        int[] ys = Arrays.copyOf(yPoints, count);
+        edit(canvas -> Rasterizer.fillPolygon(canvas, xs, ys, count, color));
+    }
+
     public void fillRect(int x, int y, int width, int height, int rgb888) {
+        if (isQueued()) {
+            enqueue(() -> fillRect(x, y, width, height, rgb888));
+            return;
+        }
         synchronized (lock) {
             int xMin = Math.max(0, x);
             int yMin = Math.max(0, y);
@@ -90,22 +410,87 @@ public class GraphicsDisplay implements Closeable {
             }
             for (int targetY = yMin; targetY < yMax; targetY++) {
                 int start = pixelAddress(xMin, targetY);
-                Arrays.fill(displayBuffer, start, start + xMax - xMin, rgb888);
+                displayBuffer.fillRgb(start, start + xMax - xMin, rgb888);
             }
             markModified(xMin, yMin, xMax, yMax);
         }
     }
 
-    /** Forces an immediate transfer of the modified screen area */
+    /** Fills a rectangle with corners rounded with the given radius. */
+    public void fillRoundRect(int x, int y, int width, int height, int radius, int color) {
+        edit(canvas -> Rasterizer.fillRoundRect(canvas, x, y, width, height, radius, color));
+    }
+
+    /**
+     * Forces an immediate transfer of the modified screen areas. If double buffering is enabled, the modified
+     * areas are copied to the back buffer and the transfer takes place asynchronously.
+     */
     public void flush() {
+        if (isQueued()) {
+            enqueue(this::flush);
+            return;
+        }
+        if (!Thread.holdsLock(lock)) {
+            // Wait for the previous transfer before locking, so other threads can keep drawing meanwhile.
+            waitForPendingTransfer();
+        }
         synchronized (lock) {
-            if (modifiedXMin < Integer.MAX_VALUE) {
-                transferBuffer(modifiedXMin, modifiedYMin, modifiedXMax, modifiedYMax);
-                modifiedXMin = Integer.MAX_VALUE;
-                modifiedYMin = Integer.MAX_VALUE;
-                modifiedXMax = Integer.MIN_VALUE;
-                modifiedYMax = Integer.MIN_VALUE;
+            if (backBuffer == null && !dirtyRegion.isEmpty()) {
+                // Releases the lock while waiting, so the state is checked again below.
+                awaitFrameStart();
+            }
+            if (dirtyRegion.isEmpty()) {
+                return;
+            }
+            if (backBuffer == null) {
+                synchronized (transferLock) {
+                    transferDirtyRegions();
+                }
+            } else {
+                // The back buffer can only be updated when the previous transfer has completed.
+                awaitTransfer();
+                int count = dirtyRegion.size();
+                if (backBufferRegions.length < count * 4) {
+                    backBufferRegions = new int[count * 4];
+                }
+                for (int i = 0; i < count; i++) {
+                    int xMin = dirtyRegion.getXMin(i);
+                    int yMin = dirtyRegion.getYMin(i);
+                    int xMax = dirtyRegion.getXMax(i);
+                    int yMax = dirtyRegion.getYMax(i);
+                    for (int y = yMin; y < yMax; y++) {
+                        int start = pixelAddress(xMin, y);
+                        displayBuffer.copyTo(backBuffer, start, xMax - xMin);
+                    }
+                    backBufferRegions[i * 4] = xMin;
+                    backBufferRegions[i * 4 + 1] = yMin;
+                    backBufferRegions[i * 4 + 2] = xMax;
+                    backBufferRegions[i * 4 + 3] = yMax;
+                }
+                backBufferRegionCount = count;
+                pendingTransfer = transferExecutor.submit(this::transferBackBuffer);
             }
+            dirtyRegion.clear();
+        }
+    }
+
+    /**
+     * Returns the number of frames per second actually presented in the last measurement window of about a second
+     * when a frame rate is set (see setFrameRate()). Ticks without modifications don't count as presented frames.
+     */
+    public double getAchievedFrameRate() {
+        synchronized (lock) {
+            return achievedFrameRate;
+        }
+    }
+
+    /**
+     * Returns the number of frame ticks that were skipped since the frame rate was set, either because the
+     * previous frame was still being transferred or because the presenter was delayed.
+     */
+    public long getDroppedFrameCount() {
+        synchronized (lock) {
+            return droppedFrameCount;
         }
     }
 
@@ -142,6 +527,16 @@ public class GraphicsDisplay implements Closeable {
     public int renderText(
             int x, int baselineY, String text, BitmapFont font, int color, int scaleX, int scaleY
     ) {
+        if (isQueued()) {
+            enqueue(() -> renderText(x, baselineY, text, font, color, scaleX, scaleY));
+            int width = 0;
+            for (int offset = 0; offset < text.length(); ) {
+                int codepoint = text.codePointAt(offset);
+                offset += Character.charCount(codepoint);
+                width += characterWidth(codepoint, font, scaleX);
+            }
+            return width;
+        }
         int length = text.length();
         int width = 0;
         for (int offset = 0; offset < length; ) {
@@ -160,6 +555,10 @@ public class GraphicsDisplay implements Closeable {
     public int renderCharacter(
             int x0, int baselineY, int codepoint, BitmapFont font, int color, int scaleX, int scaleY
     ) {
+        if (isQueued()) {
+            enqueue(() -> renderCharacter(x0, baselineY, codepoint, font, color, scaleX, scaleY));
+            return characterWidth(codepoint, font, scaleX);
+        }
         BitmapFont.Glyph glyph = font.getGlyph(codepoint);
         if (glyph == null) {
             return font.getCellWidth();
@@ -191,48 +590,751 @@ public class GraphicsDisplay implements Closeable {
         return w * scaleX;
     }
 
+    /**
+     * Scrolls the whole display up by the given number of rows, or down for negative values, filling the rows
+     * scrolled in with the given color.
+     */
+    public void scroll(int rows, int fillColor) {
+        scroll(0, displayHeight, rows, fillColor);
+    }
+
+    /**
+     * Scrolls the rows from top (inclusive) to bottom (exclusive) up by the given number of rows, or down for
+     * negative values, filling the rows scrolled in with the given color. Rows outside the range stay in place,
+     * for instance for a status line.
+     * <p>
+     * If the driver supports hardware scrolling and no software rotation is applied, pending modifications are
+     * flushed, the driver moves the rows and only the rows scrolled in need to be transferred. This makes
+     * scrolling a terminal-style log view cheap. Otherwise, the whole range is transferred.
+     */
+    public void scroll(int top, int bottom, int rows, int fillColor) {
+        if (isQueued()) {
+            enqueue(() -> scroll(top, bottom, rows, fillColor));
+            return;
+        }
+        if (!Thread.holdsLock(lock)) {
+            waitForPendingTransfer();
+        }
+        synchronized (lock) {
+            int yMin = Math.max(0, top);
+            int yMax = Math.min(bottom, displayHeight);
+            if (yMax <= yMin || rows == 0) {
+                return;
+            }
+            if (Math.abs(rows) >= yMax - yMin) {
+                fillRect(0, yMin, displayWidth, yMax - yMin, fillColor);
+                return;
+            }
+            int fillYMin = rows > 0 ? yMax - rows : yMin;
+            int fillYMax = rows > 0 ? yMax : yMin - rows;
+            if (rotation != Rotation.ROTATE_0 || !driver.supportsScrolling()) {
+                scrollRows(displayBuffer, yMin, yMax, rows, false);
+                displayBuffer.fillRgb(pixelAddress(0, fillYMin), pixelAddress(0, fillYMax), fillColor);
+                markModified(0, yMin, displayWidth, yMax);
+                return;
+            }
+
+            // Pending modifications and transfers refer to the rows before scrolling, so they are sent in the same
+            // frame, directly before scrolling. Waiting for the frame start releases the lock, so it comes first.
+            awaitFrameStart();
+            awaitTransfer();
+            synchronized (transferLock) {
+                transferDirtyRegions();
+                dirtyRegion.clear();
+                scrollRows(displayBuffer, yMin, yMax, rows, false);
+                displayBuffer.fillRgb(pixelAddress(0, fillYMin), pixelAddress(0, fillYMax), fillColor);
+                boolean sameRange = yMin == hardwareScrollTop && yMax == hardwareScrollBottom;
+                driver.scroll(yMin, yMax, rows);
+                if (!sameRange && hardwareScrollOffset != 0) {
+                    // The driver has reset the scroll position of the previous range, so both are retransmitted.
+                    int unionYMin = Math.min(yMin, hardwareScrollTop);
+                    int unionYMax = Math.max(yMax, hardwareScrollBottom);
+                    transferBuffer(displayBuffer, 0, unionYMin, displayWidth, unionYMax);
+                    if (transmittedBuffer != null) {
+                        int start = pixelAddress(0, unionYMin);
+                        displayBuffer.copyTo(transmittedBuffer, start, pixelAddress(0, unionYMax) - start);
+                    }
+                } else if (transmittedBuffer != null) {
+                    // The rows scrolled in show the rows scrolled out until they are transferred.
+                    scrollRows(transmittedBuffer, yMin, yMax, rows, true);
+                }
+                hardwareScrollOffset = Math.floorMod((sameRange ? hardwareScrollOffset : 0) + rows, yMax - yMin);
+                hardwareScrollTop = yMin;
+                hardwareScrollBottom = yMax;
+            }
+            markModified(0, fillYMin, displayWidth, fillYMax);
+        }
+    }
+
     /** Sets the pixel at the given coordinates to the given color */
     public void setPixel(int x, int y, int color) {
+        if (isQueued()) {
+            enqueue(() -> setPixel(x, y, color));
+            return;
+        }
         synchronized (lock) {
             if (x < 0 || y < 0 || x >= displayWidth || y >= displayHeight) {
                 return;
             }
-            displayBuffer[pixelAddress(x, y)] = color;
+            displayBuffer.setRgb(pixelAddress(x, y), color);
             markModified(x, y, x + 1, y + 1);
         }
     }
 
+    /**
+     * Enables or disables queued rendering.
+     * <p>
+     * In queued rendering mode, drawing operations and flush requests are added to a lock-free queue and
+     * applied to the display buffer by a dedicated render thread, so threads issuing drawing operations never block
+     * on each other or on display transfers. Operations issued by a single thread are applied in order.
+     * Disabling queued rendering (also implied by close()) waits until all queued operations have been applied.
+     * <p>
+     * An exception thrown by a queued operation is reported by the next call queuing an operation or disabling
+     * queued rendering, wrapped in an IllegalStateException.
+     */
+    public void setQueuedRendering(boolean enabled) {
+        // The drawQueue monitor only serializes starting and stopping the render thread; it is never held while
+        // acquiring lock, so threads holding lock can't deadlock with this method.
+        synchronized (drawQueue) {
+            Thread thread = renderThread;
+            if (enabled) {
+                if (thread == null) {
+                    thread = new Thread(this::render, "GraphicsDisplay render");
+                    thread.setDaemon(true);
+                    renderThread = thread;
+                    thread.start();
+                }
+                return;
+            }
+            if (thread == Thread.currentThread()) {
+                return;
+            }
+            if (thread != null) {
+                renderThread = null;
+                LockSupport.unpark(thread);
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        // Apply operations that were queued concurrently with the shutdown.
+        drainDrawQueue();
+        checkRenderFailure();
+    }
+
+    /**
+     * Sets a color correction (gamma, brightness and white balance) applied to all pixels when they are converted
+     * for the driver, or removes it if null. The display buffer keeps the uncorrected colors, so changing the
+     * correction re-transfers the whole screen. In the native buffer mode, the correction is applied to the
+     * stored colors, so dark tones lose some precision.
+     */
+    public void setColorCorrection(ColorCorrection colorCorrection) {
+        if (!Thread.holdsLock(lock)) {
+            waitForPendingTransfer();
+        }
+        synchronized (lock) {
+            // A pending transfer would still use the previous correction and mark the transmitted buffer as valid.
+            awaitTransfer();
+            synchronized (transferLock) {
+                this.colorCorrection = colorCorrection;
+                // All pixels change on the panel, so the next flush transfers the whole screen without diffing.
+                transmittedBufferValid = false;
+            }
+            dirtyRegion.add(0, 0, displayWidth, displayHeight);
+            flush();
+        }
+    }
+
+    /**
+     * Sets the dithering mode used when converting colors for drivers with an indexed pixel format, such as
+     * monochrome OLED or e-paper displays. Has no effect for direct color formats. The default is NONE.
+     */
+    public void setDithering(Dithering dithering) {
+        synchronized (transferLock) {
+            if (indexedConverter != null) {
+                indexedConverter.setDithering(dithering);
+            }
+        }
+    }
+
+    /**
+     * Enables or disables an off-heap transfer buffer. If enabled, pixels are converted directly into native
+     * memory that is passed to the driver via setPixels(..., MemorySegment), so drivers supporting this can
+     * hand the data to the operating system without copying it from the Java heap.
+     */
+    public void setOffHeapTransfer(boolean enabled) {
+        synchronized (lock) {
+            flush();
+            awaitTransfer();
+            synchronized (transferLock) {
+                if (enabled && transferArena == null) {
+                    transferArena = Arena.ofShared();
+                    transferSegment = transferArena.allocate(transferBuffer.length);
+                } else if (!enabled && transferArena != null) {
+                    transferArena.close();
+                    transferArena = null;
+                    transferSegment = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a fixed target frame rate for presenting modifications to the display, or disables the presenter
+     * if the value is 0 (the default).
+     * <p>
+     * While a frame rate is set, all modifications between two frame ticks are coalesced and transferred
+     * at the next tick; the transfer delay is ignored in this mode. Ticks are aligned to a fixed schedule,
+     * so the frame timing does not drift. If a frame can't be presented on time, the tick is dropped and
+     * the modifications are included in the next frame; see getDroppedFrameCount() and getAchievedFrameRate().
+     * Combining this mode with double buffering allows rendering the next frame while the previous one is
+     * transferred.
+     */
+    public void setFrameRate(int framesPerSecond) {
+        if (framesPerSecond < 0) {
+            throw new IllegalArgumentException("framesPerSecond must be >= 0");
+        }
+        synchronized (lock) {
+            if (presenter != null) {
+                presenter.cancel(false);
+                presenter = null;
+            }
+            frameRate = framesPerSecond;
+            achievedFrameRate = 0;
+            droppedFrameCount = 0;
+            if (framesPerSecond > 0) {
+                if (pendingUpdate != null) {
+                    pendingUpdate.cancel(false);
+                    pendingUpdate = null;
+                }
+                framePeriodNanos = 1_000_000_000L / framesPerSecond;
+                presenterStartNanos = System.nanoTime();
+                windowStartNanos = presenterStartNanos;
+                windowFrameCount = 0;
+                lastFrameTick = 0;
+                presenter = scheduler().scheduleAtFixedRate(
+                        this::presentFrame, framePeriodNanos, framePeriodNanos, TimeUnit.NANOSECONDS);
+            } else {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Enables or disables content diffing. If enabled, a copy of the last transferred frame is kept and flush()
+     * only transfers the pixels in modified areas that actually differ from it. This helps when applications
+     * redraw larger areas with mostly unchanged content, at the cost of a second buffer of the display size.
+     */
+    public void setContentDiff(boolean enabled) {
+        if (isQueued()) {
+            // Queued operations need to be applied and flushed with the previous setting first.
+            enqueue(() -> setContentDiff(enabled));
+            return;
+        }
+        synchronized (lock) {
+            flush();
+            awaitTransfer();
+            synchronized (transferLock) {
+                // The panel content is unknown, so the next flush transfers the whole screen unconditionally.
+                transmittedBuffer = enabled ? displayBuffer.newBuffer() : null;
+                transmittedBufferValid = false;
+            }
+            if (enabled) {
+                dirtyRegion.add(0, 0, displayWidth, displayHeight);
+            }
+        }
+    }
+
+    /**
+     * Enables or disables double buffering. If enabled, flush() just copies the modified areas to a back buffer
+     * and a dedicated transfer thread converts and sends them to the driver, so drawing can continue while the
+     * data is transferred. A flush only blocks if the previous transfer is still in progress, which includes
+     * waiting for the display refresh with drivers synchronizing frames to it (see
+     * GraphicsDisplayDriver.startFrame()). Other threads can keep drawing while a flush waits.
+     */
+    public void setDoubleBuffered(boolean enabled) {
+        synchronized (lock) {
+            flush();
+            awaitTransfer();
+            if (enabled && backBuffer == null) {
+                backBuffer = displayBuffer.newBuffer();
+                transferExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "GraphicsDisplay transfer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            } else if (!enabled && backBuffer != null) {
+                transferExecutor.shutdown();
+                transferExecutor = null;
+                backBuffer = null;
+            }
+        }
+    }
+
+    /**
+     * Enables tile based tracking of modified screen areas with the given tile size in pixels, or switches back to
+     * rectangle based tracking (the default) if the value is 0.
+     * <p>
+     * In tile mode, the screen is divided into square tiles and modifications just mark the affected tiles.
+     * On flush, adjacent modified tiles are combined into runs. This keeps the transfer cost proportional to the
+     * modified area when there are many small, scattered updates, for instance in animated dashboards.
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize < 0) {
+            throw new IllegalArgumentException("tileSize must be >= 0");
+        }
+        if (isQueued()) {
+            // Queued operations need to be applied and flushed with the previous tracking first.
+            enqueue(() -> setTileSize(tileSize));
+            return;
+        }
+        synchronized (lock) {
+            flush();
+            dirtyRegion = tileSize == 0
+                    ? new DirtyRectangles(MAX_DIRTY_RECTANGLES, TRANSFER_OVERHEAD_PIXELS)
+                    : new DirtyTiles(displayWidth, displayHeight, tileSize);
+        }
+    }
+
     /**
      * Sets the maximum delay between graphics updates and the screen buffer transfer to the display driver.
      * Setting the value to 0 will send all data immediately. A negative value will require an explicit
      * call to flush for the transfer. The default value is 15;
      */
     public void setTransferDelayMillis(int millis) {
-        this.transferDelayMillis = millis;
+        synchronized (lock) {
+            this.transferDelayMillis = millis;
+        }
+    }
+
+    /**
+     * Transfers a frame of 24 bit RGB pixels to the given area immediately, for video-like sources such as a camera
+     * preview or an animation. Frames bypass the display buffer and modification tracking, and drivers can keep
+     * the address window between frames for the same area (see GraphicsDisplayDriver.streamFrame()), so the
+     * latency is limited to the conversion and the transfer. Drawing to the area later on overwrites the streamed
+     * content with the display buffer content; content diffing doesn't take streamed frames into account.
+     * <p>
+     * The area must be within the display, with x and width being multiples of the x-granularity of the driver, and
+     * the array must hold at least width * height pixels. With software rotation or indexed pixel formats, the frame
+     * is drawn to the display buffer and flushed instead. In queued rendering mode, the arguments are checked and the
+     * pixels are copied before the command is queued.
+     */
+    public void streamFrame(int x, int y, int width, int height, int[] rgb888pixels) {
+        checkFrame(x, y, width, height, rgb888pixels);
+        if (isQueued()) {
+            int[] copy = Arrays.copyOf(rgb888pixels, width * height);
+            enqueue(() -> streamFrame(x, y, width, height, copy));
+            return;
+        }
+        if (!isStreamed()) {
+            synchronized (lock) {
+                drawImage(x, y, width, height, rgb888pixels);
+                flush();
+            }
+            return;
+        }
+        completeTransfers();
+        synchronized (lock) {
+            int size = streamFrameSize(x, y, width, height);
+            // Waiting for the frame start releases the lock, so the frame is converted afterwards: other threads
+            // might stream to streamBuffer meanwhile, and color correction uses rowBuffer, which is shared with
+            // transfers of the back buffer started meanwhile.
+            awaitFrameStart();
+            awaitTransfer();
+            if (streamBuffer.length < size) {
+                streamBuffer = new byte[size];
+            }
+            PixelFormat pixelFormat = driver.getDisplayInfo().getPixelFormat();
+            if (colorCorrection == null) {
+                // Rows start at byte boundaries, so the frame can be converted in one go.
+                pixelFormat.writeRgb(rgb888pixels, 0, streamBuffer, 0, width * height);
+            } else {
+                int bitOffset = 0;
+                for (int i = 0; i < height; i++) {
+                    System.arraycopy(rgb888pixels, i * width, rowBuffer, 0, width);
+                    colorCorrection.apply(rowBuffer, 0, width);
+                    bitOffset += pixelFormat.writeRgb(rowBuffer, 0, streamBuffer, bitOffset, width);
+                }
+            }
+            transferFrame(x, y, width, height, streamBuffer);
+        }
+    }
+
+    /**
+     * Transfers a frame that is already in the pixel format of the driver to the given area immediately, with rows
+     * starting at byte boundaries; see streamFrame(int, int, int, int, int[]). Color correction doesn't apply
+     * and software rotation is not supported. In queued rendering mode, the arguments are checked and the data is
+     * copied before the command is queued.
+     */
+    public void streamFrame(int x, int y, int width, int height, byte[] data) {
+        checkFrame(x, y, width, height, data);
+        if (isQueued()) {
+            byte[] copy = data.clone();
+            enqueue(() -> streamFrame(x, y, width, height, copy));
+            return;
+        }
+        completeTransfers();
+        synchronized (lock) {
+            awaitFrameStart();
+            // Transfers of the back buffer started by other threads while the lock was released.
+            awaitTransfer();
+            transferFrame(x, y, width, height, data);
+        }
     }
 
     // Private methods. Note that internally
     // - we assume coordinates are in range while we account for out-of-bounds coordinates in user methods.
     // - we use min/max coordinate bounds instead of width/height as in user methods.
 
+    /** Returns true if drawing operations of the current thread need to be queued for the render thread. */
+    private boolean isQueued() {
+        Thread thread = renderThread;
+        return thread != null && thread != Thread.currentThread();
+    }
+
+    /**
+     * Adds a drawing operation to the queue and wakes up the render thread. If a previously queued operation has
+     * failed, the failure is reported once instead, without queuing the operation.
+     */
+    private void enqueue(Runnable command) {
+        checkRenderFailure();
+        drawQueue.add(command);
+        Thread thread = renderThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        } else {
+            // Queued rendering was disabled concurrently; apply the remaining commands directly.
+            drainDrawQueue();
+            checkRenderFailure();
+        }
+    }
+
+    /** Reports the failure of a queued operation once, wrapped in an IllegalStateException. */
+    private void checkRenderFailure() {
+        RuntimeException failure = renderFailure;
+        if (failure != null) {
+            renderFailure = null;
+            throw new IllegalStateException("Queued rendering failed", failure);
+        }
+    }
+
+    /** The render thread loop, applying queued operations in batches under a single lock acquisition. */
+    private void render() {
+        Thread self = Thread.currentThread();
+        while (renderThread == self) {
+            if (drawQueue.isEmpty()) {
+                LockSupport.park(this);
+            } else {
+                drainDrawQueue();
+            }
+        }
+    }
+
+    private void drainDrawQueue() {
+        synchronized (lock) {
+            Runnable command;
+            while ((command = drawQueue.poll()) != null) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    renderFailure = e;
+                }
+            }
+        }
+    }
+
+    /** Returns the width of the given character as rendered by renderCharacter(). */
+    private static int characterWidth(int codepoint, BitmapFont font, int scaleX) {
+        BitmapFont.Glyph glyph = font.getGlyph(codepoint);
+        return glyph == null ? font.getCellWidth() : glyph.getWidth() * scaleX;
+    }
+
     /** Marks the given screen area as modified */
     private void markModified(int xMin, int yMin, int xMax, int yMax) {
         synchronized (lock) {
-            modifiedXMin = Math.min(modifiedXMin, xMin);
-            modifiedYMin = Math.min(modifiedYMin, yMin);
-            modifiedXMax = Math.max(modifiedXMax, xMax);
-            modifiedYMax = Math.max(modifiedYMax, yMax);
+            dirtyRegion.add(xMin, yMin, xMax, yMax);
+            if (frameRate > 0) {
+                // The presenter picks up the modifications at the next frame tick.
+                return;
+            }
             if (transferDelayMillis == 0) {
                 flush();
             } else if (pendingUpdate == null && transferDelayMillis > 0) {
-                pendingUpdate = new TimerTask() {
-                    @Override
-                    public void run() {
-                        pendingUpdate = null;
-                        flush();
-                    }};
-                timer.schedule(pendingUpdate, transferDelayMillis);
+                pendingUpdate = scheduler().schedule(delayedFlush, transferDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Returns the scheduler for delayed transfers and the presenter, creating it if necessary. */
+    private ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "GraphicsDisplay scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /** Runs on the scheduler thread when the transfer delay has elapsed. */
+    private void delayedFlush() {
+        synchronized (lock) {
+            pendingUpdate = null;
+        }
+        flush();
+    }
+
+    /** Runs on the scheduler thread for each frame tick when a frame rate is set. */
+    private void presentFrame() {
+        boolean present = false;
+        synchronized (lock) {
+            long now = System.nanoTime();
+            long tick = (now - presenterStartNanos) / framePeriodNanos;
+            if (tick <= lastFrameTick) {
+                // A catch-up execution after a delayed tick within the same frame period.
+                return;
+            }
+            droppedFrameCount += tick - lastFrameTick - 1;
+            lastFrameTick = tick;
+
+            if (pendingTransfer != null && !pendingTransfer.isDone()) {
+                // The previous frame is still being transferred; keep collecting modifications for the next tick.
+                droppedFrameCount++;
+            } else if (!dirtyRegion.isEmpty()) {
+                present = true;
+                windowFrameCount++;
             }
+
+            if (now - windowStartNanos >= 1_000_000_000L) {
+                achievedFrameRate = windowFrameCount * 1e9 / (now - windowStartNanos);
+                windowFrameCount = 0;
+                windowStartNanos = now;
+            }
+        }
+        if (present) {
+            // Outside of the lock, so drawing can continue while the driver waits for the start of the frame.
+            flush();
+        }
+    }
+
+    /**
+     * Lets the driver wait for the start of the next frame (see GraphicsDisplayDriver.startFrame()) before a transfer
+     * on the current thread. If the current thread holds the lock and the driver synchronizes frames, a helper
+     * thread waits for the driver while the lock is released, so other threads can keep drawing meanwhile; callers
+     * need to check the state again afterwards. Within edit(), the lock is kept, as the canvas is shared. Must not be
+     * called while holding transferLock.
+     */
+    private void awaitFrameStart() {
+        if (!Thread.holdsLock(lock) || canvas.depth > 0 || !driver.synchronizesFrames()) {
+            driver.startFrame();
+            return;
+        }
+        if (frameStartExecutor == null) {
+            frameStartExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "GraphicsDisplay frame start");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        CompletableFuture<Void> frameStart = new CompletableFuture<>();
+        frameStartExecutor.execute(() -> {
+            try {
+                driver.startFrame();
+                frameStart.complete(null);
+            } catch (Throwable e) {
+                frameStart.completeExceptionally(e);
+            } finally {
+                synchronized (lock) {
+                    lock.notifyAll();
+                }
+            }
+        });
+        try {
+            // Waiting on the monitor releases the lock, even if the current thread has acquired it repeatedly.
+            while (!frameStart.isDone()) {
+                lock.wait();
+            }
+            frameStart.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for a pending asynchronous transfer to complete without requiring the lock. Exceptions thrown by the
+     * driver are left to awaitTransfer().
+     */
+    private void waitForPendingTransfer() {
+        Future<?> pending = pendingTransfer;
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // Rethrown by awaitTransfer() under the lock.
+        }
+    }
+
+    /** Waits for a pending asynchronous transfer to complete, rethrowing any exception thrown by the driver. */
+    private void awaitTransfer() {
+        if (pendingTransfer == null) {
+            return;
+        }
+        try {
+            pendingTransfer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pendingTransfer = null;
+        }
+    }
+
+    /** Checks that the given area can be streamed and returns the size of a frame in bytes. */
+    /** Returns true if frames of 24 bit RGB pixels are streamed to the driver instead of drawn to the buffer. */
+    private boolean isStreamed() {
+        return rotation == Rotation.ROTATE_0 && indexedConverter == null;
+    }
+
+    /** Checks the arguments of streamFrame(int, int, int, int, int[]) before the frame is queued or transferred. */
+    private void checkFrame(int x, int y, int width, int height, int[] rgb888pixels) {
+        if (isStreamed()) {
+            streamFrameSize(x, y, width, height);
+        } else {
+            checkFrameArea(x, y, width, height);
+        }
+        if (rgb888pixels.length < width * height) {
+            throw new IllegalArgumentException(
+                    "Frame has " + rgb888pixels.length + " pixels, less than " + width * height);
+        }
+    }
+
+    /** Checks the arguments of streamFrame(int, int, int, int, byte[]) before the frame is queued or transferred. */
+    private void checkFrame(int x, int y, int width, int height, byte[] data) {
+        if (rotation != Rotation.ROTATE_0) {
+            throw new UnsupportedOperationException("Native frames can't be rotated in software");
+        }
+        int size = streamFrameSize(x, y, width, height);
+        if (data.length < size) {
+            throw new IllegalArgumentException("Frame data size " + data.length + " is less than " + size);
+        }
+    }
+
+    private void checkFrameArea(int x, int y, int width, int height) {
+        if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > displayWidth || y + height > displayHeight) {
+            throw new IllegalArgumentException(
+                    "Frame area " + x + ", " + y + ", " + width + "x" + height + " exceeds the display");
+        }
+    }
+
+    private int streamFrameSize(int x, int y, int width, int height) {
+        checkFrameArea(x, y, width, height);
+        GraphicsDisplayInfo displayInfo = driver.getDisplayInfo();
+        int xGranularity = displayInfo.getXGranularity();
+        if (x % xGranularity != 0 || width % xGranularity != 0) {
+            throw new IllegalArgumentException("Frame x and width must be multiples of " + xGranularity);
+        }
+        return (int) (((long) width * height * displayInfo.getPixelFormat().getBitCount() + 7) / 8);
+    }
+
+    /**
+     * Transfers pending modifications, which might overlap a streamed frame, and waits until they are sent, without
+     * holding the lock if the current thread doesn't hold it already.
+     */
+    private void completeTransfers() {
+        flush();
+        if (Thread.holdsLock(lock)) {
+            awaitTransfer();
+        } else {
+            waitForPendingTransfer();
+        }
+    }
+
+    /** Transfers the modified regions of the display buffer; the caller holds both locks and clears the regions. */
+    private void transferDirtyRegions() {
+        for (int i = 0; i < dirtyRegion.size(); i++) {
+            transferRegion(displayBuffer, dirtyRegion.getXMin(i), dirtyRegion.getYMin(i),
+                    dirtyRegion.getXMax(i), dirtyRegion.getYMax(i));
+        }
+        transmittedBufferValid = transmittedBuffer != null;
+    }
+
+    /**
+     * Hands a streamed frame to the driver; pending modifications need to be completed and the frame start awaited
+     * first.
+     */
+    private void transferFrame(int x, int y, int width, int height, byte[] data) {
+        synchronized (transferLock) {
+            driver.streamFrame(x, y, width, height, data);
+        }
+    }
+
+    /**
+     * Transfers the regions recorded for the back buffer; runs on the transfer thread, so drawing can continue
+     * while the driver waits for the start of the frame.
+     */
+    private void transferBackBuffer() {
+        synchronized (transferLock) {
+            driver.startFrame();
+            for (int i = 0; i < backBufferRegionCount; i++) {
+                transferRegion(backBuffer, backBufferRegions[i * 4], backBufferRegions[i * 4 + 1],
+                        backBufferRegions[i * 4 + 2], backBufferRegions[i * 4 + 3]);
+            }
+            transmittedBufferValid = transmittedBuffer != null;
+        }
+    }
+
+    /**
+     * Blends the rgb value src over dst with the given alpha value between 0 and 256, processing the red and blue
+     * channels in a single multiplication, with rounding.
+     */
+    private static int blend(int dst, int src, int alpha) {
+        int inverse = 256 - alpha;
+        int redBlue = ((src & 0xff00ff) * alpha + (dst & 0xff00ff) * inverse + 0x800080) >>> 8;
+        int green = ((src & 0x00ff00) * alpha + (dst & 0x00ff00) * inverse + 0x008000) >>> 8;
+        return (redBlue & 0xff00ff) | (green & 0x00ff00);
+    }
+
+    /**
+     * Moves the rows from yMin (inclusive) to yMax (exclusive) of the given buffer up by the given number of rows,
+     * or down for negative values. If wrap is set, the rows moved out of the range reappear on the other side;
+     * otherwise, the rows moved away from keep their content.
+     */
+    private void scrollRows(PixelBuffer buffer, int yMin, int yMax, int rows, boolean wrap) {
+        int start = pixelAddress(0, yMin);
+        int moved = Math.abs(rows) * displayWidth;
+        int kept = (yMax - yMin) * displayWidth - moved;
+        PixelBuffer wrapped = null;
+        if (wrap) {
+            wrapped = buffer.newBuffer(moved);
+            buffer.copyTo(wrapped, rows > 0 ? start : start + kept, 0, moved);
+        }
+        if (rows > 0) {
+            buffer.copyTo(buffer, start + moved, start, kept);
+        } else {
+            buffer.copyTo(buffer, start, start + moved, kept);
+        }
+        if (wrap) {
+            wrapped.copyTo(buffer, 0, rows > 0 ? start + kept : start, moved);
         }
     }
 
@@ -241,8 +1343,59 @@ public class GraphicsDisplay implements Closeable {
         return y * displayWidth + x;
     }
 
-    /** Transfers the given display buffer area to the display driver, mapping the rotation */
-    private void transferBuffer(int xMin, int yMin, int xMax, int yMax) {
+    /** Transfers the given area of the source buffer, skipping unchanged pixels if content diffing is enabled. */
+    private void transferRegion(PixelBuffer source, int xMin, int yMin, int xMax, int yMax) {
+        if (transmittedBuffer == null) {
+            transferBuffer(source, xMin, yMin, xMax, yMax);
+        } else if (!transmittedBufferValid) {
+            // The first flush after enabling content diffing initializes the transmitted buffer.
+            transferBuffer(source, xMin, yMin, xMax, yMax);
+            for (int y = yMin; y < yMax; y++) {
+                source.copyTo(transmittedBuffer, pixelAddress(xMin, y), xMax - xMin);
+            }
+        } else {
+            transferChanges(source, xMin, yMin, xMax, yMax);
+        }
+    }
+
+    /**
+     * Transfers the pixels in the given area that differ from the transmitted buffer. Consecutive changed rows
+     * are combined into bands covering the horizontal extent of the changes.
+     */
+    private void transferChanges(PixelBuffer source, int xMin, int yMin, int xMax, int yMax) {
+        int bandXMin = Integer.MAX_VALUE;
+        int bandXMax = Integer.MIN_VALUE;
+        int bandYMin = -1;
+        for (int y = yMin; y <= yMax; y++) {
+            int first = -1;
+            if (y < yMax) {
+                int start = pixelAddress(xMin, y);
+                int end = start + xMax - xMin;
+                first = source.mismatch(transmittedBuffer, start, end);
+                if (first != -1) {
+                    int last = source.lastMismatch(transmittedBuffer, start, end);
+                    bandXMin = Math.min(bandXMin, xMin + first);
+                    bandXMax = Math.max(bandXMax, xMin + last + 1);
+                    if (bandYMin == -1) {
+                        bandYMin = y;
+                    }
+                }
+            }
+            if (first == -1 && bandYMin != -1) {
+                transferBuffer(source, bandXMin, bandYMin, bandXMax, y);
+                for (int row = bandYMin; row < y; row++) {
+                    int start = pixelAddress(bandXMin, row);
+                    source.copyTo(transmittedBuffer, start, bandXMax - bandXMin);
+                }
+                bandXMin = Integer.MAX_VALUE;
+                bandXMax = Integer.MIN_VALUE;
+                bandYMin = -1;
+            }
+        }
+    }
+
+    /** Transfers the given source buffer area to the display driver, mapping the rotation */
+    private void transferBuffer(PixelBuffer source, int xMin, int yMin, int xMax, int yMax) {
         int xGranularity = driver.getDisplayInfo().getXGranularity();
         if (rotation == Rotation.ROTATE_0 || rotation == Rotation.ROTATE_180) {
             xMin = (xMin / xGranularity) * xGranularity;
@@ -254,40 +1407,169 @@ public class GraphicsDisplay implements Closeable {
 
         switch (rotation) {
             case ROTATE_0 ->
-                transferBuffer(pixelAddress(xMin, yMin), 1, displayWidth, xMin, yMin, xMax, yMax);
+                transferBuffer(source, pixelAddress(xMin, yMin), 1, displayWidth, xMin, yMin, xMax, yMax);
             case ROTATE_90 ->
-                transferBuffer(pixelAddress(xMin, yMax - 1), -displayWidth, 1, displayHeight - yMax, displayWidth - xMax, displayHeight - yMin, displayWidth - xMin);
+                transferBuffer(source, pixelAddress(xMin, yMax - 1), -displayWidth, 1, displayHeight - yMax, xMin, displayHeight - yMin, xMax);
             case ROTATE_180 ->
-                transferBuffer(pixelAddress(xMax - 1, yMax - 1), -1, -displayWidth, displayWidth - xMax, displayHeight - yMax, displayWidth - xMin, displayHeight - yMin);
+                transferBuffer(source, pixelAddress(xMax - 1, yMax - 1), -1, -displayWidth, displayWidth - xMax, displayHeight - yMax, displayWidth - xMin, displayHeight - yMin);
             case ROTATE_270 ->
-                transferBuffer(pixelAddress(xMax - 1, yMin), displayWidth, -1, yMin, xMin, yMax, xMax);
+                transferBuffer(source, pixelAddress(xMax - 1, yMin), displayWidth, -1, yMin, displayWidth - xMax, yMax, displayWidth - xMin);
         }
     }
 
-    /** Transfers the given display buffer area to the display driver */
-    private void transferBuffer(int sourceAddress, int sourceStrideX, int sourceStrideY, int xMin, int yMin, int xMax, int yMax) {
-        synchronized (lock) {
-            int width = xMax - xMin;
-            int height = yMax - yMin;
+    /**
+     * Transfers the given source buffer area to the display driver. The caller needs to hold the transfer lock.
+     */
+    private void transferBuffer(PixelBuffer source, int sourceAddress, int sourceStrideX, int sourceStrideY, int xMin, int yMin, int xMax, int yMax) {
+        int width = xMax - xMin;
+        int height = yMax - yMin;
 
-            PixelFormat pixelFormat = driver.getDisplayInfo().getPixelFormat();
-            int bitsPerRow = width * pixelFormat.getBitCount();
-            int bitOffset = 0;
-            for (int i = 0; i < height; i++) {
-                bitOffset += pixelFormat.writeRgb(
-                        displayBuffer,
-                        sourceAddress,
-                        sourceStrideX,
+        PixelFormat pixelFormat = driver.getDisplayInfo().getPixelFormat();
+        int bitsPerRow = width * pixelFormat.getBitCount();
+        // The off-heap path needs byte aligned rows; this holds for all but odd RGB_444 widths.
+        boolean offHeap = transferSegment != null && bitsPerRow % 8 == 0;
+        if (indexedConverter != null) {
+            indexedConverter.startRegion(width);
+        }
+        int bitOffset = 0;
+        for (int i = 0; i < height; i++) {
+            PixelBuffer rowSource = source;
+            int rowAddress = sourceAddress;
+            int rowStride = sourceStrideX;
+            if (rotationBuffer != null) {
+                // Rotate a band of rows at a time, then convert the rows of the band linearly.
+                int band = i % ROTATION_BAND_HEIGHT;
+                if (band == 0) {
+                    source.copyBlockTo(rotationBuffer, sourceAddress, sourceStrideX, sourceStrideY,
+                            width, Math.min(ROTATION_BAND_HEIGHT, height - i));
+                }
+                rowSource = rotationBuffer;
+                rowAddress = band * width;
+                rowStride = 1;
+            }
+            if (indexedConverter != null || colorCorrection != null) {
+                // Stage the row as RGB values for the correction and indexed conversion.
+                rowSource.getRgb(rowAddress, rowStride, rowBuffer, width);
+                if (colorCorrection != null) {
+                    colorCorrection.apply(rowBuffer, 0, width);
+                }
+                if (indexedConverter != null) {
+                    bitOffset += indexedConverter.writeRow(
+                            rowBuffer, width, xMin, yMin + i, transferBuffer, bitOffset);
+                } else if (offHeap) {
+                    bitOffset += 8 * (int) pixelFormat.writeRgb(
+                            rowBuffer, 0, 1, transferSegment, bitOffset / 8, width);
+                } else {
+                    bitOffset += pixelFormat.writeRgb(rowBuffer, 0, 1, transferBuffer, bitOffset, width);
+                }
+            } else if (offHeap) {
+                bitOffset += 8 * (int) rowSource.write(
+                        pixelFormat, rowAddress, rowStride, transferSegment, bitOffset / 8, width);
+            } else {
+                bitOffset += rowSource.write(
+                        pixelFormat,
+                        rowAddress,
+                        rowStride,
                         transferBuffer,
                         bitOffset,
                         width);
-                sourceAddress += sourceStrideY;
-                // Transfer if the last row is reached or the next row would overflow the buffer.
-                if (i == height - 1 || bitOffset + bitsPerRow > transferBuffer.length * 8) {
-                    int rows = bitOffset / bitsPerRow;
+            }
+            sourceAddress += sourceStrideY;
+            // Transfer if the last row is reached or the next row would overflow the buffer.
+            if (i == height - 1 || bitOffset + bitsPerRow > transferBuffer.length * 8) {
+                int rows = bitOffset / bitsPerRow;
+                if (offHeap) {
+                    if (indexedConverter != null) {
+                        // Indexed conversion uses the heap buffer; copying is cheap at these bit depths.
+                        MemorySegment.copy(transferBuffer, 0, transferSegment, ValueLayout.JAVA_BYTE, 0, bitOffset / 8);
+                    }
+                    driver.setPixels(xMin, yMin + i + 1 - rows, width, rows, transferSegment.asSlice(0, bitOffset / 8));
+                } else {
                     driver.setPixels(xMin, yMin + i + 1 - rows, width, rows, transferBuffer);
-                    bitOffset = 0;
                 }
+                bitOffset = 0;
+            }
+        }
+    }
+
+    /**
+     * Provides direct access to the display buffer within edit(), without locking or modification tracking
+     * per pixel. Coordinates outside the display are ignored.
+     */
+    public final class Canvas {
+        private int depth;
+        private int xMin;
+        private int yMin;
+        private int xMax;
+        private int yMax;
+
+        private Canvas() {
+        }
+
+        /** Returns the display width in pixels, taking rotation into account. */
+        public int getWidth() {
+            return displayWidth;
+        }
+
+        /** Returns the display height in pixels, taking rotation into account. */
+        public int getHeight() {
+            return displayHeight;
+        }
+
+        /**
+         * Returns the color of the pixel at the given coordinates, or 0 for coordinates outside the display. In the
+         * native buffer mode, the color reflects the color depth of the driver pixel format.
+         */
+        public int getPixel(int x, int y) {
+            if (x < 0 || y < 0 || x >= displayWidth || y >= displayHeight) {
+                return 0;
+            }
+            return displayBuffer.getRgb(pixelAddress(x, y));
+        }
+
+        /** Fills a horizontal span of the given width, starting at the given coordinates. */
+        public void fillSpan(int x, int y, int width, int color) {
+            if (y < 0 || y >= displayHeight) {
+                return;
+            }
+            int x0 = Math.max(0, x);
+            int x1 = Math.min(x + width, displayWidth);
+            if (x1 <= x0) {
+                return;
+            }
+            int start = pixelAddress(x0, y);
+            displayBuffer.fillRgb(start, start + x1 - x0, color);
+            if (x0 < xMin) {
+                xMin = x0;
+            }
+            if (x1 > xMax) {
+                xMax = x1;
+            }
+            if (y < yMin) {
+                yMin = y;
+            }
+            if (y >= yMax) {
+                yMax = y + 1;
+            }
+        }
+
+        /** Sets the pixel at the given coordinates to the given color. */
+        public void setPixel(int x, int y, int color) {
+            if (x < 0 || y < 0 || x >= displayWidth || y >= displayHeight) {
+                return;
+            }
+            displayBuffer.setRgb(pixelAddress(x, y), color);
+            if (x < xMin) {
+                xMin = x;
+            }
+            if (x >= xMax) {
+                xMax = x + 1;
+            }
+            if (y < yMin) {
+                yMin = y;
+            }
+            if (y >= yMax) {
+                yMax = y + 1;
             }
         }
     }
@@ -1,6 +1,8 @@
 package com.pi4j.drivers.display.graphics;
 
 import java.io.Closeable;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 
 public interface GraphicsDisplayDriver extends Closeable {
 
@@ -8,6 +10,95 @@ public interface GraphicsDisplayDriver extends Closeable {
 
     void setPixels(int x, int y, int width, int height, byte[] data);
 
+    /**
+     * Sets the pixels of the given area from an off-heap memory segment, used by GraphicsDisplay if an off-heap
+     * transfer buffer is enabled. The segment contains exactly the data for the area. Drivers that can hand
+     * native memory directly to the operating system should override this method; the default implementation
+     * copies the data to a byte array.
+     */
+    default void setPixels(int x, int y, int width, int height, MemorySegment data) {
+        setPixels(x, y, width, height, data.toArray(ValueLayout.JAVA_BYTE));
+    }
+
+    /**
+     * Transfers a complete frame for the given area, typically called repeatedly for the same area by video-like
+     * sources. Drivers can override this to keep the address window of the previous frame, so a frame just needs
+     * a memory write command and the data. The default implementation calls setPixels() with bands of rows within
+     * the maximum transfer size.
+     */
+    default void streamFrame(int x, int y, int width, int height, byte[] data) {
+        GraphicsDisplayInfo displayInfo = getDisplayInfo();
+        int rowSize = (width * displayInfo.getPixelFormat().getBitCount() + 7) / 8;
+        int bandHeight = Math.max(1, displayInfo.getMaxTransferSize() / rowSize);
+        if (bandHeight >= height) {
+            setPixels(x, y, width, height, data);
+            return;
+        }
+        byte[] band = new byte[bandHeight * rowSize];
+        for (int row = 0; row < height; row += bandHeight) {
+            int rows = Math.min(bandHeight, height - row);
+            System.arraycopy(data, row * rowSize, band, 0, rows * rowSize);
+            setPixels(x, y + row, width, rows, band);
+        }
+    }
+
+    /**
+     * Called by GraphicsDisplay before transferring a frame, i.e. the modifications collected since the previous
+     * flush or a streamed frame. Drivers that can synchronize with the refresh of the panel may block here until the
+     * next vertical blanking interval starts, so the transfer doesn't tear. The default implementation does nothing.
+     * <p>
+     * GraphicsDisplay doesn't hold its drawing lock while this method waits: if a transfer is triggered while the
+     * lock is held, for instance by queued rendering or a transfer delay of 0, the lock is released and a helper
+     * thread calls this method, provided synchronizesFrames() returns true. It may run while another thread
+     * transfers pixels, so implementations should only wait here.
+     */
+    default void startFrame() {
+    }
+
+    /**
+     * Returns true if startFrame() currently may wait for the refresh of the panel, so GraphicsDisplay releases its
+     * drawing lock while calling it. The default implementation returns false.
+     */
+    default boolean synchronizesFrames() {
+        return false;
+    }
+
+    /**
+     * Returns true if the driver can apply the given rotation in hardware, for instance via the address mode of the
+     * display controller, making rotated transfers as cheap as unrotated ones. The default implementation returns
+     * false, so GraphicsDisplay rotates in software.
+     */
+    default boolean supportsRotation(GraphicsDisplay.Rotation rotation) {
+        return false;
+    }
+
+    /**
+     * Configures the display for the given rotation; only called for rotations supported according to
+     * supportsRotation(). Afterwards, getDisplayInfo() reports the rotated dimensions and setPixels() takes
+     * rotated coordinates.
+     */
+    default void setRotation(GraphicsDisplay.Rotation rotation) {
+        throw new UnsupportedOperationException("Hardware rotation is not supported: " + rotation);
+    }
+
+    /**
+     * Returns true if the driver can scroll a range of rows vertically in hardware in its current rotation, see
+     * scroll(). The default implementation returns false, so GraphicsDisplay retransmits scrolled areas.
+     */
+    default boolean supportsScrolling() {
+        return false;
+    }
+
+    /**
+     * Scrolls the rows from top (inclusive) to bottom (exclusive) up by the given number of rows, or down for
+     * negative values, wrapping around within the range. Afterwards, setPixels() addresses the scrolled view, so
+     * the rows scrolled in show the rows scrolled out until they are set. Changing the range resets the scroll
+     * position, so the rows of the previous range need to be set again.
+     */
+    default void scroll(int top, int bottom, int rows) {
+        throw new UnsupportedOperationException("Hardware scrolling is not supported");
+    }
+
     @Override
     void close();
 }
@@ -9,7 +9,14 @@ public class GraphicsDisplayInfo {
     /** x-coordinates must be a multiple of this value when sending data to the driver. */
     private final int xGranularity;
 
-    private static int granularityForBits(int bitCount) {
+    /** The maximum number of bytes the driver accepts in a single setPixels call. */
+    private final int maxTransferSize;
+
+    /** The palette for indexed pixel formats; null for direct color formats. */
+    private final Palette palette;
+
+    /** Returns the minimum x-granularity required to start each row on a byte boundary for the given bit count. */
+    public static int granularityForBits(int bitCount) {
         int xGranularity = 1;
         while ((xGranularity * bitCount) % 8 != 0) {
             xGranularity *= 2;
@@ -17,11 +24,37 @@ public class GraphicsDisplayInfo {
         return xGranularity;
     }
 
-    public GraphicsDisplayInfo(int width, int height, PixelFormat pixelFormat, int xGranularity) {
+    /**
+     * Creates a display info instance.
+     *
+     * @param maxTransferSize
+     *            The maximum number of bytes the driver accepts in a single setPixels call, for instance limited by
+     *            the kernel buffer size of the underlying bus. Integer.MAX_VALUE if there is no limit.
+     * @param palette
+     *            The palette for indexed pixel formats. Null selects the default palette of the pixel format.
+     */
+    public GraphicsDisplayInfo(
+            int width, int height, PixelFormat pixelFormat, int xGranularity, int maxTransferSize, Palette palette) {
+        if (maxTransferSize <= 0) {
+            throw new IllegalArgumentException("maxTransferSize must be > 0");
+        }
+        if (palette != null && (!pixelFormat.isIndexed() || palette.size() > 1 << pixelFormat.getBitCount())) {
+            throw new IllegalArgumentException("Palette size " + palette.size() + " doesn't fit " + pixelFormat);
+        }
         this.width = width;
         this.height = height;
         this.pixelFormat = pixelFormat;
         this.xGranularity = xGranularity;
+        this.maxTransferSize = maxTransferSize;
+        this.palette = palette == null ? pixelFormat.getDefaultPalette() : palette;
+    }
+
+    public GraphicsDisplayInfo(int width, int height, PixelFormat pixelFormat, int xGranularity, int maxTransferSize) {
+        this(width, height, pixelFormat, xGranularity, maxTransferSize, null);
+    }
+
+    public GraphicsDisplayInfo(int width, int height, PixelFormat pixelFormat, int xGranularity) {
+        this(width, height, pixelFormat, xGranularity, Integer.MAX_VALUE);
     }
 
     public GraphicsDisplayInfo(int width, int height, PixelFormat pixelFormat) {
@@ -47,4 +80,17 @@ public class GraphicsDisplayInfo {
         return xGranularity;
     }
 
+    /**
+     * The maximum number of bytes the driver accepts in a single setPixels call. Integer.MAX_VALUE if there is no
+     * limit, so complete regions can be sent in a single transaction.
+     */
+    public int getMaxTransferSize() {
+        return maxTransferSize;
+    }
+
+    /** The palette for indexed pixel formats; null for direct color formats. */
+    public Palette getPalette() {
+        return palette;
+    }
+
 }
@@ -0,0 +1,127 @@
+package com.pi4j.drivers.display.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Converts rows of 24 bit RGB pixels to the palette indices of an indexed pixel format, with optional dithering.
+ * <p>
+ * The rows of a region need to be converted from top to bottom, as Floyd-Steinberg dithering diffuses the
+ * quantization error into the next row. Ordered dithering only depends on the pixel position, so it is stable
+ * across partial updates.
+ */
+final class IndexedColorConverter {
+
+    /** Threshold values of the 4x4 Bayer matrix, in the range 0..15. */
+    private static final int[] BAYER_4X4 = {0, 8, 2, 10, 12, 4, 14, 6, 3, 11, 1, 9, 15, 7, 13, 5};
+
+    private final PixelFormat format;
+    private final Palette palette;
+    private GraphicsDisplay.Dithering dithering = GraphicsDisplay.Dithering.NONE;
+
+    // Floyd-Steinberg error terms per channel, 16 times the actual error. Three entries per pixel, with a margin of
+    // one pixel on each side, for the current and the next row.
+    private int[] errors = new int[0];
+    private int[] nextErrors = new int[0];
+
+    IndexedColorConverter(PixelFormat format, Palette palette) {
+        this.format = format;
+        this.palette = palette;
+    }
+
+    void setDithering(GraphicsDisplay.Dithering dithering) {
+        this.dithering = dithering;
+    }
+
+    /** Resets the error diffusion state for a new region with rows of the given width. */
+    void startRegion(int width) {
+        if (dithering != GraphicsDisplay.Dithering.FLOYD_STEINBERG) {
+            return;
+        }
+        int size = 3 * (width + 2);
+        if (errors.length < size) {
+            errors = new int[size];
+            nextErrors = new int[size];
+        } else {
+            Arrays.fill(errors, 0, size, 0);
+            Arrays.fill(nextErrors, 0, size, 0);
+        }
+    }
+
+    /**
+     * Writes the palette indices for count pixels of rgb, located at the given driver coordinates, to dst at the
+     * given bit offset. Returns the number of bits written.
+     */
+    int writeRow(int[] rgb, int count, int x, int y, byte[] dst, int dstBitOffset) {
+        int bitCount = format.getBitCount();
+        if (dstBitOffset % 8 != 0 || (count * bitCount) % 8 != 0) {
+            for (int i = 0; i < count; i++) {
+                format.writeValue(index(rgb[i], x + i, y, i), dst, dstBitOffset + i * bitCount);
+            }
+        } else {
+            // Collect whole bytes, avoiding the masked bit writes.
+            int dstOffset = dstBitOffset / 8;
+            int bits = 0;
+            int bitsCollected = 0;
+            for (int i = 0; i < count; i++) {
+                bits = (bits << bitCount) | index(rgb[i], x + i, y, i);
+                bitsCollected += bitCount;
+                if (bitsCollected == 8) {
+                    dst[dstOffset++] = (byte) bits;
+                    bits = 0;
+                    bitsCollected = 0;
+                }
+            }
+        }
+        if (dithering == GraphicsDisplay.Dithering.FLOYD_STEINBERG) {
+            int[] tmp = errors;
+            errors = nextErrors;
+            nextErrors = tmp;
+            Arrays.fill(nextErrors, 0, 3 * (count + 2), 0);
+        }
+        return count * bitCount;
+    }
+
+    /** Returns the palette index for the given pixel; i is the position in the row for error diffusion. */
+    private int index(int rgb, int x, int y, int i) {
+        switch (dithering) {
+            case NONE -> {
+                return palette.indexOf(rgb);
+            }
+            case ORDERED -> {
+                int spread = palette.getDitherSpread();
+                int offset = (2 * BAYER_4X4[(y & 3) * 4 + (x & 3)] + 1) * spread / 32 - spread / 2;
+                return palette.indexOf(rgb(
+                        ((rgb >> 16) & 0xff) + offset, ((rgb >> 8) & 0xff) + offset, (rgb & 0xff) + offset));
+            }
+            default -> {
+                int base = 3 * (i + 1);
+                int red = ((rgb >> 16) & 0xff) + ((errors[base] + 8) >> 4);
+                int green = ((rgb >> 8) & 0xff) + ((errors[base + 1] + 8) >> 4);
+                int blue = (rgb & 0xff) + ((errors[base + 2] + 8) >> 4);
+                int index = palette.indexOf(rgb(red, green, blue));
+                int color = palette.getColor(index);
+                diffuse(base, red - (color >> 16));
+                diffuse(base + 1, green - ((color >> 8) & 0xff));
+                diffuse(base + 2, blue - (color & 0xff));
+                return index;
+            }
+        }
+    }
+
+    /** Distributes the error of a channel to the neighbouring pixels with the Floyd-Steinberg weights. */
+    private void diffuse(int position, int error) {
+        errors[position + 3] += error * 7;
+        nextErrors[position - 3] += error * 3;
+        nextErrors[position] += error * 5;
+        nextErrors[position + 3] += error;
+    }
+
+    /** Combines the given channel values into a 24 bit RGB value, clamping them to 0..255. */
+    private static int rgb(int red, int green, int blue) {
+        return (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+}
@@ -0,0 +1,120 @@
+package com.pi4j.drivers.display.graphics;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+
+/**
+ * Stores pixels in the driver pixel format, using 16 bits per pixel for formats with up to 16 bits. Colors are
+ * converted once when drawing, so transferring pixels just splits the stored values into bytes. Reading pixels
+ * returns the stored colors expanded back to 24 bits, so they reflect the reduced color depth.
+ */
+final class NativePixelBuffer implements PixelBuffer {
+
+    private final PixelFormat format;
+    private final short[] pixels;
+
+    NativePixelBuffer(PixelFormat format, int size) {
+        this(format, new short[size]);
+        if (format.getBitCount() > 16) {
+            throw new IllegalArgumentException("Pixel format " + format + " exceeds 16 bits");
+        }
+    }
+
+    private NativePixelBuffer(PixelFormat format, short[] pixels) {
+        this.format = format;
+        this.pixels = pixels;
+    }
+
+    @Override
+    public int getRgb(int index) {
+        return format.toRgb(pixels[index] & 0xffff);
+    }
+
+    @Override
+    public void getRgb(int index, int stride, int[] dst, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = format.toRgb(pixels[index] & 0xffff);
+            index += stride;
+        }
+    }
+
+    @Override
+    public void setRgb(int index, int rgb) {
+        pixels[index] = (short) format.fromRgb(rgb);
+    }
+
+    @Override
+    public void setRgb(int index, int[] src, int srcOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            pixels[index + i] = (short) format.fromRgb(src[srcOffset + i]);
+        }
+    }
+
+    @Override
+    public void fillRgb(int fromIndex, int toIndex, int rgb) {
+        Arrays.fill(pixels, fromIndex, toIndex, (short) format.fromRgb(rgb));
+    }
+
+    @Override
+    public void copyTo(PixelBuffer target, int index, int count) {
+        System.arraycopy(pixels, index, ((NativePixelBuffer) target).pixels, index, count);
+    }
+
+    @Override
+    public void copyTo(PixelBuffer target, int index, int targetIndex, int count) {
+        System.arraycopy(pixels, index, ((NativePixelBuffer) target).pixels, targetIndex, count);
+    }
+
+    @Override
+    public int mismatch(PixelBuffer other, int fromIndex, int toIndex) {
+        return Arrays.mismatch(pixels, fromIndex, toIndex, ((NativePixelBuffer) other).pixels, fromIndex, toIndex);
+    }
+
+    @Override
+    public int lastMismatch(PixelBuffer other, int fromIndex, int toIndex) {
+        short[] otherPixels = ((NativePixelBuffer) other).pixels;
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            if (pixels[i] != otherPixels[i]) {
+                return i - fromIndex;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void copyRunTo(PixelBuffer target, int index, int stride, int targetIndex, int count) {
+        short[] dst = ((NativePixelBuffer) target).pixels;
+        for (int i = 0; i < count; i++) {
+            dst[targetIndex + i] = pixels[index];
+            index += stride;
+        }
+    }
+
+    @Override
+    public PixelBuffer newBuffer() {
+        return new NativePixelBuffer(format, new short[pixels.length]);
+    }
+
+    @Override
+    public PixelBuffer newBuffer(int size) {
+        return new NativePixelBuffer(format, new short[size]);
+    }
+
+    @Override
+    public int write(PixelFormat format, int index, int stride, byte[] dst, int dstBitOffset, int count) {
+        checkFormat(format);
+        return format.writeNative(pixels, index, stride, dst, dstBitOffset, count);
+    }
+
+    @Override
+    public long write(PixelFormat format, int index, int stride, MemorySegment dst, long dstOffset, int count) {
+        checkFormat(format);
+        return format.writeNative(pixels, index, stride, dst, dstOffset, count);
+    }
+
+    private void checkFormat(PixelFormat format) {
+        if (format != this.format) {
+            throw new IllegalArgumentException("Buffer format " + this.format + " doesn't match " + format);
+        }
+    }
+}
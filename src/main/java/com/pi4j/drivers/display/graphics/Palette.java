@@ -0,0 +1,122 @@
+package com.pi4j.drivers.display.graphics;
+
+/**
+ * A color palette for indexed pixel formats, mapping pixel values to 24 bit RGB colors.
+ * <p>
+ * RGB colors are mapped to the nearest palette entry using a lookup table with 15 bit RGB precision, so the
+ * conversion costs a single array access per pixel. For gray palettes, the table maps the 8 bit luminance instead,
+ * so up to 256 gray levels can be distinguished. The table is computed on first use.
+ */
+public final class Palette {
+
+    private final int[] colors;
+    /** True if all colors are gray, so the nearest color only depends on the luminance. */
+    private final boolean gray;
+    /**
+     * Maps 15 bit RGB values (5 bits per channel) or, for gray palettes, 8 bit luminance values to the nearest
+     * palette index.
+     */
+    private volatile byte[] lookupTable;
+    /** The typical distance between palette colors per channel, used to scale ordered dithering. */
+    private final int ditherSpread;
+
+    /** Creates a palette with the given 24 bit RGB colors; the index of a color is its position. */
+    public Palette(int... rgbColors) {
+        if (rgbColors.length < 1 || rgbColors.length > 256) {
+            throw new IllegalArgumentException("A palette must have 1 to 256 colors");
+        }
+        colors = new int[rgbColors.length];
+        boolean gray = true;
+        for (int i = 0; i < colors.length; i++) {
+            int rgb = rgbColors[i] & 0xffffff;
+            colors[i] = rgb;
+            gray &= rgb == (rgb & 0xff) * 0x010101;
+        }
+        this.gray = gray;
+        int levels = gray ? colors.length : (int) Math.round(Math.cbrt(colors.length));
+        ditherSpread = 255 / Math.max(1, levels - 1);
+    }
+
+    /** Returns a palette of evenly spaced gray levels from black to white, for the given bits per pixel. */
+    public static Palette grayscale(int bitCount) {
+        int levels = 1 << bitCount;
+        int[] colors = new int[levels];
+        for (int i = 0; i < levels; i++) {
+            colors[i] = (i * 255 / (levels - 1)) * 0x010101;
+        }
+        return new Palette(colors);
+    }
+
+    /** The number of colors in this palette. */
+    public int size() {
+        return colors.length;
+    }
+
+    /** Returns the 24 bit RGB color for the given index. */
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    /** Returns the index of the palette color closest to the given 24 bit RGB color. */
+    public int indexOf(int rgb) {
+        byte[] lookupTable = this.lookupTable;
+        if (lookupTable == null) {
+            lookupTable = createLookupTable();
+        }
+        if (gray) {
+            return lookupTable[luminance((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff)] & 0xff;
+        }
+        return lookupTable[((rgb >> 9) & 0x7c00) | ((rgb >> 6) & 0x03e0) | ((rgb >> 3) & 0x001f)] & 0xff;
+    }
+
+    int getDitherSpread() {
+        return ditherSpread;
+    }
+
+    private byte[] createLookupTable() {
+        // Concurrent first calls may compute the table more than once, which is harmless.
+        if (gray) {
+            byte[] table = new byte[256];
+            for (int value = 0; value < table.length; value++) {
+                table[value] = (byte) nearest(value, value, value);
+            }
+            lookupTable = table;
+            return table;
+        }
+        byte[] table = new byte[1 << 15];
+        for (int key = 0; key < table.length; key++) {
+            // Use the center of the quantization interval of each channel.
+            int red = ((key >> 10) << 3) | 4;
+            int green = (((key >> 5) & 0x1f) << 3) | 4;
+            int blue = ((key & 0x1f) << 3) | 4;
+            table[key] = (byte) nearest(red, green, blue);
+        }
+        lookupTable = table;
+        return table;
+    }
+
+    /**
+     * Returns the luminance with the channel weights of nearest(), rounded to 8 bits. For gray palettes, the gray
+     * level nearest to this value is also the nearest color.
+     */
+    private static int luminance(int red, int green, int blue) {
+        return (57 * red + 114 * green + 85 * blue + 128) >> 8;
+    }
+
+    /** Finds the nearest color with a weighted squared distance, approximating the perceived difference. */
+    private int nearest(int red, int green, int blue) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < colors.length; i++) {
+            int dr = red - (colors[i] >> 16);
+            int dg = green - ((colors[i] >> 8) & 0xff);
+            int db = blue - (colors[i] & 0xff);
+            int distance = 2 * dr * dr + 4 * dg * dg + 3 * db * db;
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
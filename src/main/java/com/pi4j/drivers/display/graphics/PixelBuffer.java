@@ -0,0 +1,94 @@
+package com.pi4j.drivers.display.graphics;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Storage for the pixels of a display buffer. Pixels are addressed by index and read and written as 24 bit RGB
+ * values, while the storage format is up to the implementation. Buffers passed to copyTo() and the mismatch methods
+ * must be of the same type and size, typically obtained via newBuffer().
+ */
+interface PixelBuffer {
+
+    /** The edge length of the tiles used by copyBlockTo(). */
+    int TILE_SIZE = 16;
+
+    /** Returns the 24 bit RGB value of the pixel at the given index. */
+    int getRgb(int index);
+
+    /**
+     * Reads count pixels as 24 bit RGB values into dst, starting at the given index and adding stride to the index
+     * after each pixel.
+     */
+    void getRgb(int index, int stride, int[] dst, int count);
+
+    /** Sets the pixel at the given index to the given 24 bit RGB value. */
+    void setRgb(int index, int rgb);
+
+    /** Sets count pixels starting at the given index to the 24 bit RGB values in src, starting at srcOffset. */
+    void setRgb(int index, int[] src, int srcOffset, int count);
+
+    /** Sets the pixels from fromIndex (inclusive) to toIndex (exclusive) to the given 24 bit RGB value. */
+    void fillRgb(int fromIndex, int toIndex, int rgb);
+
+    /** Copies count pixels starting at the given index to the same position in the target buffer. */
+    void copyTo(PixelBuffer target, int index, int count);
+
+    /**
+     * Copies count pixels starting at the given index to the target buffer, starting at targetIndex. The target
+     * may be this buffer; overlapping ranges are copied as if through a temporary buffer.
+     */
+    void copyTo(PixelBuffer target, int index, int targetIndex, int count);
+
+    /**
+     * Returns the offset of the first pixel in the given index range that differs from the other buffer,
+     * relative to fromIndex, or -1 if there is no difference (as in Arrays.mismatch).
+     */
+    int mismatch(PixelBuffer other, int fromIndex, int toIndex);
+
+    /**
+     * Returns the offset of the last pixel in the given index range that differs from the other buffer,
+     * relative to fromIndex, or -1 if there is no difference.
+     */
+    int lastMismatch(PixelBuffer other, int fromIndex, int toIndex);
+
+    /**
+     * Copies a block of height rows with width pixels each into the target buffer, reading pixel j of row i from
+     * index + i * strideY + j * strideX and storing it at i * width + j. The block is traversed in square tiles, so
+     * both buffers are accessed in cache friendly runs even if strideX is a full row, as for rotated transfers.
+     */
+    default void copyBlockTo(PixelBuffer target, int index, int strideX, int strideY, int width, int height) {
+        for (int tileY = 0; tileY < height; tileY += TILE_SIZE) {
+            int tileYMax = Math.min(tileY + TILE_SIZE, height);
+            for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+                int tileWidth = Math.min(TILE_SIZE, width - tileX);
+                for (int y = tileY; y < tileYMax; y++) {
+                    copyRunTo(target, index + y * strideY + tileX * strideX, strideX, y * width + tileX, tileWidth);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies count pixels starting at the given index and adding stride to the index after each pixel to
+     * consecutive positions of the target buffer, starting at targetIndex. Used by copyBlockTo().
+     */
+    void copyRunTo(PixelBuffer target, int index, int stride, int targetIndex, int count);
+
+    /** Returns a new buffer of the same type and size, with all pixels set to 0. */
+    PixelBuffer newBuffer();
+
+    /** Returns a new buffer of the same type with the given number of pixels, all set to 0. */
+    PixelBuffer newBuffer(int size);
+
+    /**
+     * Writes count pixels in the given pixel format to dst, starting at the given index and adding stride to the
+     * index after each pixel. Returns the number of bits written.
+     */
+    int write(PixelFormat format, int index, int stride, byte[] dst, int dstBitOffset, int count);
+
+    /**
+     * Writes count pixels in the given pixel format to a memory segment, as above. The pixels must fill whole
+     * bytes. Returns the number of bytes written.
+     */
+    long write(PixelFormat format, int index, int stride, MemorySegment dst, long dstOffset, int count);
+}
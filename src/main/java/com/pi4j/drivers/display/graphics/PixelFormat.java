@@ -1,11 +1,36 @@
 package com.pi4j.drivers.display.graphics;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
 public enum PixelFormat {
 
     RGB_444(4, 4, 4), // 12-bit color format with 4 bits for each color channel (red, green, blue)
     RGB_565(5, 6, 5), // 16-bit color format that uses 5 bits for red, 6 bits for green, and 5 bits for blue
     RGB_565_LE(5, 6, 5), // The same as RGB_565, but the bytes swapped to little endian format.
-    RGB_888(8, 8, 8); // One byte for each channel.
+    RGB_888(8, 8, 8), // One byte for each channel.
+    // Indexed formats, storing palette indices with the given number of bits. Pixels are packed starting with the
+    // most significant bits. Drivers can specify the palette in GraphicsDisplayInfo; the default palette consists
+    // of evenly spaced gray levels.
+    INDEXED_1(1),
+    INDEXED_2(2),
+    INDEXED_4(4),
+    INDEXED_8(8);
+
+    /**
+     * Vector API kernels are used if the jdk.incubator.vector module is available, i.e. the JVM was started with
+     * --add-modules jdk.incubator.vector, and the platform supports vectors of at least 128 bits. The module check
+     * makes sure VectorPixelKernels is never loaded otherwise.
+     */
+    private static final boolean VECTOR_KERNELS_AVAILABLE = vectorKernelsAvailable();
+    /** Allows tests to check the scalar kernels even if the vector kernels are available. */
+    private static boolean vectorKernelsEnabled = VECTOR_KERNELS_AVAILABLE;
+
+    private static final ValueLayout.OfShort SHORT_BE =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT_LE =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
 
     private final int redBitCount;
     private final int greenBitCount;
@@ -15,7 +40,19 @@ public enum PixelFormat {
     private final int greenMask;
     private final int blueMask;
 
+    /** The number of bits of a palette index for indexed formats; 0 otherwise. */
+    private final int indexBitCount;
+    private final Palette defaultPalette;
+
     PixelFormat(int redBitCount, int greenBitCount, int blueBitCount) {
+        this(redBitCount, greenBitCount, blueBitCount, 0);
+    }
+
+    PixelFormat(int indexBitCount) {
+        this(0, 0, 0, indexBitCount);
+    }
+
+    PixelFormat(int redBitCount, int greenBitCount, int blueBitCount, int indexBitCount) {
         this.redBitCount = redBitCount;
         this.greenBitCount = greenBitCount;
         this.blueBitCount = blueBitCount;
@@ -23,11 +60,27 @@ public enum PixelFormat {
         this.redMask = (1 << redBitCount) - 1;
         this.greenMask = (1 << greenBitCount) - 1;
         this.blueMask = (1 << blueBitCount) - 1;
+
+        this.indexBitCount = indexBitCount;
+        this.defaultPalette = indexBitCount > 0 ? Palette.grayscale(indexBitCount) : null;
     }
 
     // The total number of bits used by this format.
     public int getBitCount() {
-        return redBitCount + greenBitCount + blueBitCount;
+        return indexBitCount > 0 ? indexBitCount : redBitCount + greenBitCount + blueBitCount;
+    }
+
+    /** Returns true for formats storing palette indices instead of color channel values. */
+    public boolean isIndexed() {
+        return indexBitCount > 0;
+    }
+
+    /**
+     * Returns the grayscale palette used for indexed formats if the driver doesn't specify a palette, or null for
+     * direct color formats.
+     */
+    public Palette getDefaultPalette() {
+        return defaultPalette;
     }
 
     /**
@@ -64,19 +117,44 @@ public enum PixelFormat {
 
     /** Converts a value from a 24 bit RGB integer value to "this" pixel format. */
     int fromRgb(int rgb) {
+        if (indexBitCount > 0) {
+            return defaultPalette.indexOf(rgb);
+        }
         int red = (rgb >> (24 - redBitCount)) & redMask;
         int green = (rgb >> (16 - greenBitCount)) & greenMask;
         int blue = (rgb >> (8 - blueBitCount)) & blueMask;
         return (red << (greenBitCount + blueBitCount)) | (green << (blueBitCount)) | blue;
     }
 
+    /**
+     * Converts a value in "this" pixel format to a 24 bit RGB integer value. The high bits of each channel are
+     * replicated into the low bits, so full intensity maps to 255.
+     */
+    int toRgb(int value) {
+        if (indexBitCount > 0) {
+            return defaultPalette.getColor(value);
+        }
+        int red = (value >> (greenBitCount + blueBitCount)) & redMask;
+        int green = (value >> blueBitCount) & greenMask;
+        int blue = value & blueMask;
+        return (expand(red, redBitCount) << 16) | (expand(green, greenBitCount) << 8) | expand(blue, blueBitCount);
+    }
+
     /**
      * Writes a 24-bit RGB value into the given buffer in "this" pixel format at the given *bit* offset, returning the
      * number of bits written.
      */
     int writeRgb(int rgb, byte[] buffer, int bitOffset) {
-        int count = redBitCount + greenBitCount + blueBitCount;
-        writeBits(fromRgb(rgb), count, buffer, bitOffset);
+        return writeValue(fromRgb(rgb), buffer, bitOffset);
+    }
+
+    /**
+     * Writes a value in "this" pixel format, for instance a palette index, into the given buffer at the given *bit*
+     * offset, returning the number of bits written.
+     */
+    int writeValue(int value, byte[] buffer, int bitOffset) {
+        int count = getBitCount();
+        writeBits(value, count, buffer, bitOffset);
         return count;
     }
 
@@ -118,7 +196,69 @@ public enum PixelFormat {
      *
      * @return The number of bits written.
      */
-     int writeRgb(int[] srcRgb, int srcOffset, int srcStride, byte[] dst, int dstBitOffset, int pixelCount) {
+    int writeRgb(int[] srcRgb, int srcOffset, int srcStride, byte[] dst, int dstBitOffset, int pixelCount) {
+        if (dstBitOffset % 8 == 0) {
+            // Specialized kernels for byte aligned output, avoiding the generic masked bit writes.
+            int dstOffset = dstBitOffset / 8;
+            if (vectorKernelsEnabled && srcStride == 1 && (this == RGB_565 || this == RGB_565_LE)) {
+                int converted = VectorPixelKernels.writeRgb565(
+                        srcRgb, srcOffset, dst, dstOffset, pixelCount, this == RGB_565);
+                if (converted > 0) {
+                    return converted * 16 + writeRgb(
+                            srcRgb, srcOffset + converted, 1, dst, dstBitOffset + converted * 16, pixelCount - converted);
+                }
+            }
+            switch (this) {
+                case RGB_565 -> {
+                    for (int i = 0; i < pixelCount; i++) {
+                        int rgb = srcRgb[srcOffset];
+                        int value = ((rgb >> 8) & 0xf800) | ((rgb >> 5) & 0x07e0) | ((rgb >> 3) & 0x001f);
+                        dst[dstOffset++] = (byte) (value >> 8);
+                        dst[dstOffset++] = (byte) value;
+                        srcOffset += srcStride;
+                    }
+                    return pixelCount * 16;
+                }
+                case RGB_565_LE -> {
+                    for (int i = 0; i < pixelCount; i++) {
+                        int rgb = srcRgb[srcOffset];
+                        int value = ((rgb >> 8) & 0xf800) | ((rgb >> 5) & 0x07e0) | ((rgb >> 3) & 0x001f);
+                        dst[dstOffset++] = (byte) value;
+                        dst[dstOffset++] = (byte) (value >> 8);
+                        srcOffset += srcStride;
+                    }
+                    return pixelCount * 16;
+                }
+                case RGB_888 -> {
+                    for (int i = 0; i < pixelCount; i++) {
+                        int rgb = srcRgb[srcOffset];
+                        dst[dstOffset++] = (byte) (rgb >> 16);
+                        dst[dstOffset++] = (byte) (rgb >> 8);
+                        dst[dstOffset++] = (byte) rgb;
+                        srcOffset += srcStride;
+                    }
+                    return pixelCount * 24;
+                }
+                case RGB_444 -> {
+                    // Pack pixel pairs into three bytes; an odd trailing pixel is handled by the generic code.
+                    int pairs = pixelCount / 2;
+                    for (int i = 0; i < pairs; i++) {
+                        int rgb0 = srcRgb[srcOffset];
+                        int rgb1 = srcRgb[srcOffset + srcStride];
+                        int value0 = ((rgb0 >> 12) & 0xf00) | ((rgb0 >> 8) & 0x0f0) | ((rgb0 >> 4) & 0x00f);
+                        int value1 = ((rgb1 >> 12) & 0xf00) | ((rgb1 >> 8) & 0x0f0) | ((rgb1 >> 4) & 0x00f);
+                        dst[dstOffset++] = (byte) (value0 >> 4);
+                        dst[dstOffset++] = (byte) ((value0 << 4) | (value1 >> 8));
+                        dst[dstOffset++] = (byte) value1;
+                        srcOffset += 2 * srcStride;
+                    }
+                    if ((pixelCount & 1) != 0) {
+                        writeRgb(srcRgb[srcOffset], dst, dstOffset * 8);
+                    }
+                    return pixelCount * 12;
+                }
+            }
+        }
         int bitsWritten = 0;
         for (int i = 0; i < pixelCount; i++) {
             bitsWritten += writeRgb(srcRgb[srcOffset], dst, dstBitOffset + bitsWritten);
@@ -127,17 +267,263 @@ public enum PixelFormat {
         return bitsWritten;
     }
 
+    /**
+     * Writes 24 bit integer RGB values from srcRgb to a memory segment in "this" pixel format. The pixel count must
+     * correspond to a whole number of bytes.
+     *
+     * @param srcRgb
+     *            The source array with rgb values in 24 bit integers.
+     * @param srcOffset
+     *            The start offset in the source array
+     * @param srcStride
+     *            The value to add to the start offset after each pixel.
+     * @param dst
+     *            The destination segment.
+     * @param dstOffset
+     *            The byte offset in the destination segment.
+     * @param pixelCount
+     *            The number of pixels to be transferred.
+     *
+     * @return The number of bytes written.
+     */
+    long writeRgb(int[] srcRgb, int srcOffset, int srcStride, MemorySegment dst, long dstOffset, int pixelCount) {
+        checkByteAligned(pixelCount);
+        if (vectorKernelsEnabled && srcStride == 1 && (this == RGB_565 || this == RGB_565_LE)) {
+            int converted = VectorPixelKernels.writeRgb565(
+                    srcRgb, srcOffset, dst, dstOffset, pixelCount, this == RGB_565);
+            if (converted > 0) {
+                return converted * 2L + writeRgb(
+                        srcRgb, srcOffset + converted, 1, dst, dstOffset + converted * 2L, pixelCount - converted);
+            }
+        }
+        switch (this) {
+            case RGB_565, RGB_565_LE -> {
+                ValueLayout.OfShort layout = this == RGB_565 ? SHORT_BE : SHORT_LE;
+                for (int i = 0; i < pixelCount; i++) {
+                    int rgb = srcRgb[srcOffset];
+                    int value = ((rgb >> 8) & 0xf800) | ((rgb >> 5) & 0x07e0) | ((rgb >> 3) & 0x001f);
+                    dst.set(layout, dstOffset + 2L * i, (short) value);
+                    srcOffset += srcStride;
+                }
+            }
+            case RGB_888 -> {
+                for (int i = 0; i < pixelCount; i++) {
+                    int rgb = srcRgb[srcOffset];
+                    dst.set(ValueLayout.JAVA_BYTE, dstOffset++, (byte) (rgb >> 16));
+                    dst.set(ValueLayout.JAVA_BYTE, dstOffset++, (byte) (rgb >> 8));
+                    dst.set(ValueLayout.JAVA_BYTE, dstOffset++, (byte) rgb);
+                    srcOffset += srcStride;
+                }
+            }
+            case RGB_444 -> {
+                for (int i = 0; i < pixelCount; i += 2) {
+                    int rgb0 = srcRgb[srcOffset];
+                    int rgb1 = srcRgb[srcOffset + srcStride];
+                    int value0 = ((rgb0 >> 12) & 0xf00) | ((rgb0 >> 8) & 0x0f0) | ((rgb0 >> 4) & 0x00f);
+                    int value1 = ((rgb1 >> 12) & 0xf00) | ((rgb1 >> 8) & 0x0f0) | ((rgb1 >> 4) & 0x00f);
+                    write444Pair(value0, value1, dst, dstOffset);
+                    dstOffset += 3;
+                    srcOffset += 2 * srcStride;
+                }
+            }
+            default -> {
+                // Indexed formats: Collect whole bytes before storing them.
+                int bits = 0;
+                int bitsCollected = 0;
+                for (int i = 0; i < pixelCount; i++) {
+                    bits = (bits << indexBitCount) | fromRgb(srcRgb[srcOffset]);
+                    bitsCollected += indexBitCount;
+                    if (bitsCollected == 8) {
+                        dst.set(ValueLayout.JAVA_BYTE, dstOffset++, (byte) bits);
+                        bits = 0;
+                        bitsCollected = 0;
+                    }
+                    srcOffset += srcStride;
+                }
+            }
+        }
+        return pixelCount * (long) getBitCount() / 8;
+    }
+
+    /**
+     * Writes values already in "this" pixel format (as returned by fromRgb()) from src to dst. Only supported for
+     * direct color formats with up to 16 bits; indexed formats always use the RGB_888 buffer mode.
+     *
+     * @param src
+     *            The source array with values in "this" format.
+     * @param srcOffset
+     *            The start offset in the source array
+     * @param srcStride
+     *            The value to add to the start offset after each pixel.
+     * @param dst
+     *            The destination buffer.
+     * @param dstBitOffset
+     *            The bit offset in the destination buffer.
+     * @param pixelCount
+     *            The number of pixels to be transferred.
+     *
+     * @return The number of bits written.
+     */
+    int writeNative(short[] src, int srcOffset, int srcStride, byte[] dst, int dstBitOffset, int pixelCount) {
+        int bitCount = getBitCount();
+        if (dstBitOffset % 8 == 0) {
+            int dstOffset = dstBitOffset / 8;
+            switch (this) {
+                case RGB_565 -> {
+                    for (int i = 0; i < pixelCount; i++) {
+                        short value = src[srcOffset];
+                        dst[dstOffset++] = (byte) (value >> 8);
+                        dst[dstOffset++] = (byte) value;
+                        srcOffset += srcStride;
+                    }
+                    return pixelCount * 16;
+                }
+                case RGB_565_LE -> {
+                    for (int i = 0; i < pixelCount; i++) {
+                        short value = src[srcOffset];
+                        dst[dstOffset++] = (byte) value;
+                        dst[dstOffset++] = (byte) (value >> 8);
+                        srcOffset += srcStride;
+                    }
+                    return pixelCount * 16;
+                }
+                case RGB_444 -> {
+                    int pairs = pixelCount / 2;
+                    for (int i = 0; i < pairs; i++) {
+                        int value0 = src[srcOffset];
+                        int value1 = src[srcOffset + srcStride];
+                        dst[dstOffset++] = (byte) (value0 >> 4);
+                        dst[dstOffset++] = (byte) ((value0 << 4) | ((value1 >> 8) & 0xf));
+                        dst[dstOffset++] = (byte) value1;
+                        srcOffset += 2 * srcStride;
+                    }
+                    if ((pixelCount & 1) != 0) {
+                        writeBits(src[srcOffset] & 0xfff, bitCount, dst, dstOffset * 8);
+                    }
+                    return pixelCount * 12;
+                }
+                case RGB_888 -> throw new UnsupportedOperationException("RGB_888 values don't fit into 16 bits");
+            }
+        }
+        int bitsWritten = 0;
+        for (int i = 0; i < pixelCount; i++) {
+            writeBits(src[srcOffset] & 0xffff, bitCount, dst, dstBitOffset + bitsWritten);
+            bitsWritten += bitCount;
+            srcOffset += srcStride;
+        }
+        return bitsWritten;
+    }
+
+    /**
+     * Writes values already in "this" pixel format (as returned by fromRgb()) from src to a memory segment. Only
+     * supported for direct color formats with up to 16 bits. The pixel count must correspond to a whole number of
+     * bytes.
+     *
+     * @return The number of bytes written.
+     */
+    long writeNative(short[] src, int srcOffset, int srcStride, MemorySegment dst, long dstOffset, int pixelCount) {
+        checkByteAligned(pixelCount);
+        switch (this) {
+            case RGB_565, RGB_565_LE -> {
+                ValueLayout.OfShort layout = this == RGB_565 ? SHORT_BE : SHORT_LE;
+                for (int i = 0; i < pixelCount; i++) {
+                    dst.set(layout, dstOffset + 2L * i, src[srcOffset]);
+                    srcOffset += srcStride;
+                }
+            }
+            case RGB_444 -> {
+                for (int i = 0; i < pixelCount; i += 2) {
+                    write444Pair(src[srcOffset], src[srcOffset + srcStride], dst, dstOffset);
+                    dstOffset += 3;
+                    srcOffset += 2 * srcStride;
+                }
+            }
+            case RGB_888 -> throw new UnsupportedOperationException("RGB_888 values don't fit into 16 bits");
+            default -> throw new UnsupportedOperationException("Indexed format " + this + " isn't stored natively");
+        }
+        return pixelCount * (long) getBitCount() / 8;
+    }
+
     /**
      * Fills the dst array with pixels of the same 24 bit rgb color, converted to "this" format.
      */
     int fillRgb(byte[] dst, int dstBitOffset, int pixelCount, int rgb) {
-        int bitsWritten = 0;
         int nativeColor = fromRgb(rgb);
         int bitCount = getBitCount();
+        if (dstBitOffset % 8 == 0 && bitCount % 8 == 0) {
+            // Byte aligned formats: Repeat the bytes of a single pixel, most significant byte first.
+            int dstOffset = dstBitOffset / 8;
+            int pattern = this == RGB_565_LE ? Short.reverseBytes((short) nativeColor) & 0xffff : nativeColor;
+            for (int i = 0; i < pixelCount; i++) {
+                for (int shift = bitCount - 8; shift >= 0; shift -= 8) {
+                    dst[dstOffset++] = (byte) (pattern >> shift);
+                }
+            }
+            return pixelCount * bitCount;
+        }
+        if (dstBitOffset % 8 == 0 && this == RGB_444) {
+            // RGB_444: Two pixels form a three byte pattern; an odd trailing pixel is handled by the generic code.
+            int dstOffset = dstBitOffset / 8;
+            byte b0 = (byte) (nativeColor >> 4);
+            byte b1 = (byte) ((nativeColor << 4) | (nativeColor >> 8));
+            byte b2 = (byte) nativeColor;
+            int pairs = pixelCount / 2;
+            for (int i = 0; i < pairs; i++) {
+                dst[dstOffset++] = b0;
+                dst[dstOffset++] = b1;
+                dst[dstOffset++] = b2;
+            }
+            if ((pixelCount & 1) != 0) {
+                writeBits(nativeColor, bitCount, dst, dstOffset * 8);
+            }
+            return pixelCount * bitCount;
+        }
+        int bitsWritten = 0;
         for (int i = 0; i < pixelCount; i++) {
             writeBits(nativeColor, bitCount, dst, dstBitOffset + bitsWritten);
             bitsWritten += bitCount;
         }
         return bitsWritten;
     }
+
+    /**
+     * Enables or disables the vector kernels if they are available, returning the previous setting. Only intended
+     * for tests.
+     */
+    static boolean setVectorKernelsEnabled(boolean enabled) {
+        boolean previous = vectorKernelsEnabled;
+        vectorKernelsEnabled = enabled && VECTOR_KERNELS_AVAILABLE;
+        return previous;
+    }
+
+    private static boolean vectorKernelsAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorPixelKernels.isSupported();
+        } catch (LinkageError e) {
+            // Includes ExceptionInInitializerError: Fall back to the scalar kernels.
+            return false;
+        }
+    }
+
+    /** Expands a channel value with the given bit count to 8 bits by replicating the high bits. */
+    private static int expand(int value, int bitCount) {
+        int result = value << (8 - bitCount);
+        return result | (result >> bitCount);
+    }
+
+    private void checkByteAligned(int pixelCount) {
+        if (pixelCount * getBitCount() % 8 != 0) {
+            throw new IllegalArgumentException(pixelCount + " pixels in " + this + " don't fill whole bytes");
+        }
+    }
+
+    /** Packs two 12 bit values into three bytes of the given segment. */
+    private static void write444Pair(int value0, int value1, MemorySegment dst, long dstOffset) {
+        dst.set(ValueLayout.JAVA_BYTE, dstOffset, (byte) (value0 >> 4));
+        dst.set(ValueLayout.JAVA_BYTE, dstOffset + 1, (byte) ((value0 << 4) | ((value1 >> 8) & 0xf)));
+        dst.set(ValueLayout.JAVA_BYTE, dstOffset + 2, (byte) value1);
+    }
 }
@@ -0,0 +1,290 @@
+package com.pi4j.drivers.display.graphics;
+
+/**
+ * Rasterizes graphics primitives into a canvas. Filled shapes are decomposed into horizontal spans, so most of the
+ * work consists of Arrays.fill calls on the display buffer.
+ */
+final class Rasterizer {
+
+    private Rasterizer() {
+    }
+
+    /**
+     * Draws a line from (x0, y0) to (x1, y1), including both end points, using Bresenham's algorithm. Lines
+     * extending beyond the display are clipped first, so only the visible part is walked.
+     */
+    static void drawLine(GraphicsDisplay.Canvas canvas, int x0, int y0, int x1, int y1, int color) {
+        int xMax = canvas.getWidth() - 1;
+        int yMax = canvas.getHeight() - 1;
+        if (x0 < 0 || y0 < 0 || x1 < 0 || y1 < 0 || x0 > xMax || y0 > yMax || x1 > xMax || y1 > yMax) {
+            // Liang-Barsky: narrow the parameter range [t0, t1] of the line to the part inside each edge.
+            double dx = (double) x1 - x0;
+            double dy = (double) y1 - y0;
+            double t0 = 0;
+            double t1 = 1;
+            for (int edge = 0; edge < 4; edge++) {
+                double p = edge == 0 ? -dx : edge == 1 ? dx : edge == 2 ? -dy : dy;
+                double q = edge == 0 ? x0 : edge == 1 ? (double) xMax - x0 : edge == 2 ? y0 : (double) yMax - y0;
+                if (p == 0) {
+                    if (q < 0) {
+                        // Parallel to the edge and outside.
+                        return;
+                    }
+                } else if (p < 0) {
+                    t0 = Math.max(t0, q / p);
+                } else {
+                    t1 = Math.min(t1, q / p);
+                }
+            }
+            if (t0 > t1) {
+                return;
+            }
+            int clippedX0 = (int) Math.round(x0 + t0 * dx);
+            int clippedY0 = (int) Math.round(y0 + t0 * dy);
+            x1 = (int) Math.round(x0 + t1 * dx);
+            y1 = (int) Math.round(y0 + t1 * dy);
+            x0 = clippedX0;
+            y0 = clippedY0;
+        }
+        if (y0 == y1) {
+            canvas.fillSpan(Math.min(x0, x1), y0, Math.abs(x1 - x0) + 1, color);
+            return;
+        }
+        int dx = Math.abs(x1 - x0);
+        int dy = -Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        int error = dx + dy;
+        while (true) {
+            canvas.setPixel(x0, y0, color);
+            if (x0 == x1 && y0 == y1) {
+                break;
+            }
+            int e2 = 2 * error;
+            if (e2 >= dy) {
+                error += dy;
+                x0 += sx;
+            }
+            if (e2 <= dx) {
+                error += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    /** Draws the outline of a rectangle. */
+    static void drawRect(GraphicsDisplay.Canvas canvas, int x, int y, int width, int height, int color) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        canvas.fillSpan(x, y, width, color);
+        canvas.fillSpan(x, y + height - 1, width, color);
+        for (int i = y + 1; i < y + height - 1; i++) {
+            canvas.setPixel(x, i, color);
+            canvas.setPixel(x + width - 1, i, color);
+        }
+    }
+
+    /** Draws a circle outline using the midpoint circle algorithm. */
+    static void drawCircle(GraphicsDisplay.Canvas canvas, int cx, int cy, int radius, int color) {
+        drawArc(canvas, cx, cy, radius, 0, 360, color);
+    }
+
+    /** Fills a circle, using the midpoint circle algorithm to determine the span widths. */
+    static void fillCircle(GraphicsDisplay.Canvas canvas, int cx, int cy, int radius, int color) {
+        if (radius < 0) {
+            return;
+        }
+        int x = radius;
+        int y = 0;
+        int error = 1 - radius;
+        while (x >= y) {
+            canvas.fillSpan(cx - x, cy + y, 2 * x + 1, color);
+            canvas.fillSpan(cx - x, cy - y, 2 * x + 1, color);
+            canvas.fillSpan(cx - y, cy + x, 2 * y + 1, color);
+            canvas.fillSpan(cx - y, cy - x, 2 * y + 1, color);
+            y++;
+            if (error < 0) {
+                error += 2 * y + 1;
+            } else {
+                x--;
+                error += 2 * (y - x) + 1;
+            }
+        }
+    }
+
+    /**
+     * Draws a circular arc using the midpoint circle algorithm. Angles are in degrees, with 0 at the 3 o'clock
+     * position and positive values meaning counter-clockwise rotation, as in java.awt.Graphics.
+     */
+    static void drawArc(
+            GraphicsDisplay.Canvas canvas, int cx, int cy, int radius, int startAngle, int arcAngle, int color) {
+        if (radius < 0 || arcAngle == 0) {
+            return;
+        }
+        if (arcAngle < 0) {
+            startAngle += arcAngle;
+            arcAngle = -arcAngle;
+        }
+        boolean full = arcAngle >= 360;
+        // Compare "diamond angles" (a monotonic substitute for the polar angle in the range [0, 4)) to avoid
+        // trigonometric functions per pixel.
+        double start = diamondAngle(Math.cos(Math.toRadians(startAngle)), Math.sin(Math.toRadians(startAngle)));
+        double end = diamondAngle(
+                Math.cos(Math.toRadians(startAngle + arcAngle)), Math.sin(Math.toRadians(startAngle + arcAngle)));
+
+        int x = radius;
+        int y = 0;
+        int error = 1 - radius;
+        while (x >= y) {
+            // All eight octants; screen y points down, so the y component is inverted for the angle.
+            arcPixel(canvas, cx, cy, x, y, full, start, end, color);
+            arcPixel(canvas, cx, cy, y, x, full, start, end, color);
+            arcPixel(canvas, cx, cy, -y, x, full, start, end, color);
+            arcPixel(canvas, cx, cy, -x, y, full, start, end, color);
+            arcPixel(canvas, cx, cy, -x, -y, full, start, end, color);
+            arcPixel(canvas, cx, cy, -y, -x, full, start, end, color);
+            arcPixel(canvas, cx, cy, y, -x, full, start, end, color);
+            arcPixel(canvas, cx, cy, x, -y, full, start, end, color);
+            y++;
+            if (error < 0) {
+                error += 2 * y + 1;
+            } else {
+                x--;
+                error += 2 * (y - x) + 1;
+            }
+        }
+    }
+
+    /** Draws the outline of a rectangle with rounded corners of the given radius. */
+    static void drawRoundRect(
+            GraphicsDisplay.Canvas canvas, int x, int y, int width, int height, int radius, int color) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        radius = Math.max(0, Math.min(radius, Math.min(width, height) / 2));
+        int x0 = x + radius;
+        int x1 = x + width - 1 - radius;
+        int y0 = y + radius;
+        int y1 = y + height - 1 - radius;
+        canvas.fillSpan(x0, y, x1 - x0 + 1, color);
+        canvas.fillSpan(x0, y + height - 1, x1 - x0 + 1, color);
+        for (int i = y0; i <= y1; i++) {
+            canvas.setPixel(x, i, color);
+            canvas.setPixel(x + width - 1, i, color);
+        }
+        drawArc(canvas, x1, y0, radius, 0, 90, color);
+        drawArc(canvas, x0, y0, radius, 90, 90, color);
+        drawArc(canvas, x0, y1, radius, 180, 90, color);
+        drawArc(canvas, x1, y1, radius, 270, 90, color);
+    }
+
+    /** Fills a rectangle with rounded corners of the given radius. */
+    static void fillRoundRect(
+            GraphicsDisplay.Canvas canvas, int x, int y, int width, int height, int radius, int color) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        radius = Math.max(0, Math.min(radius, Math.min(width, height) / 2));
+        int y0 = y + radius;
+        int y1 = y + height - 1 - radius;
+        for (int i = y0; i <= y1; i++) {
+            canvas.fillSpan(x, i, width, color);
+        }
+        // The corner rows, with the inset determined by the midpoint circle algorithm.
+        int cx = radius;
+        int cy = 0;
+        int error = 1 - radius;
+        int innerWidth = width - 2 * radius;
+        while (cx >= cy) {
+            canvas.fillSpan(x + radius - cx, y0 - cy, innerWidth + 2 * cx, color);
+            canvas.fillSpan(x + radius - cx, y1 + cy, innerWidth + 2 * cx, color);
+            canvas.fillSpan(x + radius - cy, y0 - cx, innerWidth + 2 * cy, color);
+            canvas.fillSpan(x + radius - cy, y1 + cx, innerWidth + 2 * cy, color);
+            cy++;
+            if (error < 0) {
+                error += 2 * cy + 1;
+            } else {
+                cx--;
+                error += 2 * (cy - cx) + 1;
+            }
+        }
+    }
+
+    /** Draws the closed outline of the polygon with the given vertices. */
+    static void drawPolygon(GraphicsDisplay.Canvas canvas, int[] xPoints, int[] yPoints, int count, int color) {
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            drawLine(canvas, xPoints[i], yPoints[i], xPoints[j], yPoints[j], color);
+        }
+    }
+
+    /**
+     * Fills the polygon with the given vertices using a scanline algorithm with the even-odd rule. Pixels are
+     * considered inside if their center is inside the polygon.
+     */
+    static void fillPolygon(GraphicsDisplay.Canvas canvas, int[] xPoints, int[] yPoints, int count, int color) {
+        if (count < 3) {
+            return;
+        }
+        int yMin = Integer.MAX_VALUE;
+        int yMax = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            yMin = Math.min(yMin, yPoints[i]);
+            yMax = Math.max(yMax, yPoints[i]);
+        }
+        // Clip the scanline range to the display once.
+        yMin = Math.max(yMin, 0);
+        yMax = Math.min(yMax, canvas.getHeight());
+
+        int[] crossings = new int[count];
+        for (int y = yMin; y < yMax; y++) {
+            double scanY = y + 0.5;
+            int crossingCount = 0;
+            for (int i = 0; i < count; i++) {
+                int j = i == 0 ? count - 1 : i - 1;
+                int ya = yPoints[i];
+                int yb = yPoints[j];
+                if ((ya <= scanY) != (yb <= scanY)) {
+                    double x = xPoints[i] + (scanY - ya) * (xPoints[j] - xPoints[i]) / (yb - ya);
+                    // The first pixel with its center right of the crossing.
+                    int pixel = (int) Math.ceil(x - 0.5);
+                    // Insertion sort, as the number of crossings is typically tiny.
+                    int k = crossingCount++;
+                    while (k > 0 && crossings[k - 1] > pixel) {
+                        crossings[k] = crossings[k - 1];
+                        k--;
+                    }
+                    crossings[k] = pixel;
+                }
+            }
+            for (int k = 0; k + 1 < crossingCount; k += 2) {
+                canvas.fillSpan(crossings[k], y, crossings[k + 1] - crossings[k], color);
+            }
+        }
+    }
+
+    // Private helpers
+
+    private static void arcPixel(GraphicsDisplay.Canvas canvas, int cx, int cy, int dx, int dy,
+                                 boolean full, double start, double end, int color) {
+        if (full || isInArc(diamondAngle(dx, -dy), start, end)) {
+            canvas.setPixel(cx + dx, cy + dy, color);
+        }
+    }
+
+    private static boolean isInArc(double angle, double start, double end) {
+        return start <= end ? angle >= start && angle <= end : angle >= start || angle <= end;
+    }
+
+    /** Maps the direction of the given vector to a value in [0, 4) that is monotonic with the polar angle. */
+    private static double diamondAngle(double x, double y) {
+        if (x == 0 && y == 0) {
+            return 0;
+        }
+        if (y >= 0) {
+            return x >= 0 ? y / (x + y) : 1 - x / (-x + y);
+        }
+        return x < 0 ? 2 - y / (-x - y) : 3 + x / (x - y);
+    }
+}
@@ -0,0 +1,102 @@
+package com.pi4j.drivers.display.graphics;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+
+/** Stores pixels as 24 bit RGB integer values, converting them to the driver pixel format on transfer. */
+final class RgbPixelBuffer implements PixelBuffer {
+
+
+    private final int[] pixels;
+
+    RgbPixelBuffer(int size) {
+        this(new int[size]);
+    }
+
+    private RgbPixelBuffer(int[] pixels) {
+        this.pixels = pixels;
+    }
+
+    @Override
+    public int getRgb(int index) {
+        return pixels[index];
+    }
+
+    @Override
+    public void getRgb(int index, int stride, int[] dst, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = pixels[index];
+            index += stride;
+        }
+    }
+
+    @Override
+    public void setRgb(int index, int rgb) {
+        pixels[index] = rgb;
+    }
+
+    @Override
+    public void setRgb(int index, int[] src, int srcOffset, int count) {
+        System.arraycopy(src, srcOffset, pixels, index, count);
+    }
+
+    @Override
+    public void fillRgb(int fromIndex, int toIndex, int rgb) {
+        Arrays.fill(pixels, fromIndex, toIndex, rgb);
+    }
+
+    @Override
+    public void copyTo(PixelBuffer target, int index, int count) {
+        System.arraycopy(pixels, index, ((RgbPixelBuffer) target).pixels, index, count);
+    }
+
+    @Override
+    public void copyTo(PixelBuffer target, int index, int targetIndex, int count) {
+        System.arraycopy(pixels, index, ((RgbPixelBuffer) target).pixels, targetIndex, count);
+    }
+
+    @Override
+    public int mismatch(PixelBuffer other, int fromIndex, int toIndex) {
+        return Arrays.mismatch(pixels, fromIndex, toIndex, ((RgbPixelBuffer) other).pixels, fromIndex, toIndex);
+    }
+
+    @Override
+    public int lastMismatch(PixelBuffer other, int fromIndex, int toIndex) {
+        int[] otherPixels = ((RgbPixelBuffer) other).pixels;
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            if (pixels[i] != otherPixels[i]) {
+                return i - fromIndex;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void copyRunTo(PixelBuffer target, int index, int stride, int targetIndex, int count) {
+        int[] dst = ((RgbPixelBuffer) target).pixels;
+        for (int i = 0; i < count; i++) {
+            dst[targetIndex + i] = pixels[index];
+            index += stride;
+        }
+    }
+
+    @Override
+    public PixelBuffer newBuffer() {
+        return new RgbPixelBuffer(pixels.length);
+    }
+
+    @Override
+    public PixelBuffer newBuffer(int size) {
+        return new RgbPixelBuffer(size);
+    }
+
+    @Override
+    public int write(PixelFormat format, int index, int stride, byte[] dst, int dstBitOffset, int count) {
+        return format.writeRgb(pixels, index, stride, dst, dstBitOffset, count);
+    }
+
+    @Override
+    public long write(PixelFormat format, int index, int stride, MemorySegment dst, long dstOffset, int count) {
+        return format.writeRgb(pixels, index, stride, dst, dstOffset, count);
+    }
+}
@@ -0,0 +1,86 @@
+package com.pi4j.drivers.display.graphics;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * Pixel format conversion kernels based on the incubating Vector API, using the widest vector shape supported
+ * by the platform (for instance NEON on aarch64).
+ * <p>
+ * This class must only be loaded if the jdk.incubator.vector module is present (see PixelFormat); otherwise the
+ * scalar kernels are used.
+ */
+final class VectorPixelKernels {
+
+    /**
+     * Narrower vectors don't pay off (two int lanes at most), and the short vectors below would need a 32 bit shape,
+     * which doesn't exist.
+     */
+    private static final int MIN_VECTOR_BIT_SIZE = 128;
+
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    /** Short vectors with the same lane count as the int vectors; null if the int vectors are too narrow. */
+    private static final VectorSpecies<Short> SHORT_SPECIES = INT_SPECIES.vectorBitSize() >= MIN_VECTOR_BIT_SIZE
+            ? ShortVector.SPECIES_MAX.withShape(VectorShape.forBitSize(INT_SPECIES.vectorBitSize() / 2))
+            : null;
+    private static final boolean NATIVE_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private VectorPixelKernels() {
+    }
+
+    /** Returns true if the preferred vector shape of the platform is wide enough for these kernels. */
+    static boolean isSupported() {
+        return SHORT_SPECIES != null;
+    }
+
+    /**
+     * Converts pixelCount consecutive 24 bit RGB values to RGB_565 (big endian or little endian) at the given
+     * byte offset, returning the number of pixels converted. The remaining pixels (less than a vector length)
+     * need to be converted by the caller.
+     */
+    static int writeRgb565(int[] srcRgb, int srcOffset, byte[] dst, int dstOffset, int pixelCount, boolean bigEndian) {
+        // Vectors are stored in native byte order, so the values need to be swapped if this doesn't match.
+        boolean swap = bigEndian == NATIVE_LITTLE_ENDIAN;
+        int laneCount = INT_SPECIES.length();
+        int upperBound = INT_SPECIES.loopBound(pixelCount);
+        for (int i = 0; i < upperBound; i += laneCount) {
+            IntVector rgb = IntVector.fromArray(INT_SPECIES, srcRgb, srcOffset + i);
+            IntVector value = rgb.lanewise(VectorOperators.LSHR, 8).and(0xf800)
+                    .or(rgb.lanewise(VectorOperators.LSHR, 5).and(0x07e0))
+                    .or(rgb.lanewise(VectorOperators.LSHR, 3).and(0x001f));
+            if (swap) {
+                value = value.lanewise(VectorOperators.LSHR, 8)
+                        .or(value.lanewise(VectorOperators.LSHL, 8).and(0xff00));
+            }
+            ShortVector shorts = (ShortVector) value.convertShape(VectorOperators.I2S, SHORT_SPECIES, 0);
+            shorts.reinterpretAsBytes().intoArray(dst, dstOffset + 2 * i);
+        }
+        return upperBound;
+    }
+
+    /**
+     * Converts pixelCount consecutive 24 bit RGB values to RGB_565 (big endian or little endian) at the given
+     * byte offset of a memory segment, returning the number of pixels converted, as above.
+     */
+    static int writeRgb565(
+            int[] srcRgb, int srcOffset, MemorySegment dst, long dstOffset, int pixelCount, boolean bigEndian) {
+        ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        int laneCount = INT_SPECIES.length();
+        int upperBound = INT_SPECIES.loopBound(pixelCount);
+        for (int i = 0; i < upperBound; i += laneCount) {
+            IntVector rgb = IntVector.fromArray(INT_SPECIES, srcRgb, srcOffset + i);
+            IntVector value = rgb.lanewise(VectorOperators.LSHR, 8).and(0xf800)
+                    .or(rgb.lanewise(VectorOperators.LSHR, 5).and(0x07e0))
+                    .or(rgb.lanewise(VectorOperators.LSHR, 3).and(0x001f));
+            ShortVector shorts = (ShortVector) value.convertShape(VectorOperators.I2S, SHORT_SPECIES, 0);
+            shorts.intoMemorySegment(dst, dstOffset + 2L * i, order);
+        }
+        return upperBound;
+    }
+}
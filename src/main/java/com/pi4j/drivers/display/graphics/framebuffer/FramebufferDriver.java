@@ -5,12 +5,16 @@ import com.pi4j.drivers.display.graphics.GraphicsDisplayInfo;
 import com.pi4j.drivers.display.graphics.PixelFormat;
 
 import java.io.*;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class FramebufferDriver implements GraphicsDisplayDriver, Closeable {
 
     private static final String SENSE_HAT_FB_NAME = "RPi-Sense FB";
     private final GraphicsDisplayInfo displayInfo;
     private final RandomAccessFile file;
+    private final FileChannel channel;
 
     public static String resolveFramebufferName(String name) {
         File dir = new File("/sys/class/graphics/");
@@ -39,6 +43,7 @@ public class FramebufferDriver implements GraphicsDisplayDriver, Closeable {
     public FramebufferDriver(String filename, int width, int height, PixelFormat pixelFormat) {
         try {
             this.file = new RandomAccessFile(filename, "rw");
+            this.channel = file.getChannel();
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
@@ -64,11 +69,7 @@ public class FramebufferDriver implements GraphicsDisplayDriver, Closeable {
     public void setPixels(int x, int y, int width, int height, byte[] data) {
         try {
             int srcOffset = 0;
-            int bitsPerRow = (width * getDisplayInfo().getPixelFormat().getBitCount());
-            if (bitsPerRow % 8 != 0) {
-                throw new IllegalArgumentException("Row bit width " + bitsPerRow + " must be a multiple of 8");
-            }
-            int bytesPerRow = bitsPerRow / 8;
+            int bytesPerRow = getBytesPerRow(width);
             for (int i = 0; i < height; i++) {
                 file.seek(getPixelAddress(x, y + i));
                 file.write(data, srcOffset, bytesPerRow);
@@ -79,6 +80,36 @@ public class FramebufferDriver implements GraphicsDisplayDriver, Closeable {
         }
     }
 
+    /**
+     * Writes the rows directly from native memory using positional channel writes, avoiding the intermediate
+     * copies of the byte array variant.
+     */
+    @Override
+    public void setPixels(int x, int y, int width, int height, MemorySegment data) {
+        try {
+            long srcOffset = 0;
+            int bytesPerRow = getBytesPerRow(width);
+            for (int i = 0; i < height; i++) {
+                ByteBuffer row = data.asSlice(srcOffset, bytesPerRow).asByteBuffer();
+                long position = getPixelAddress(x, y + i);
+                while (row.hasRemaining()) {
+                    position += channel.write(row, position);
+                }
+                srcOffset += bytesPerRow;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int getBytesPerRow(int width) {
+        int bitsPerRow = (width * getDisplayInfo().getPixelFormat().getBitCount());
+        if (bitsPerRow % 8 != 0) {
+            throw new IllegalArgumentException("Row bit width " + bitsPerRow + " must be a multiple of 8");
+        }
+        return bitsPerRow / 8;
+    }
+
     private int getPixelAddress(int x, int y) {
         int bitAddress = (y * getDisplayInfo().getWidth() + x) *  getDisplayInfo().getPixelFormat().getBitCount();
         if (bitAddress % 8 != 0) {
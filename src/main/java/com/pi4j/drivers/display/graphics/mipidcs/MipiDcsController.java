@@ -0,0 +1,229 @@
+package com.pi4j.drivers.display.graphics.mipidcs;
+
+import com.pi4j.drivers.display.graphics.PixelFormat;
+
+import java.util.EnumSet;
+
+import static com.pi4j.drivers.display.graphics.mipidcs.MipiDcsDriver.DELAY;
+import static com.pi4j.drivers.display.graphics.mipidcs.MipiDcsDriver.INVOFF;
+import static com.pi4j.drivers.display.graphics.mipidcs.MipiDcsDriver.INVON;
+import static com.pi4j.drivers.display.graphics.mipidcs.MipiDcsDriver.NORON;
+import static com.pi4j.drivers.display.graphics.mipidcs.MipiDcsDriver.SLPOUT;
+import static com.pi4j.drivers.display.graphics.mipidcs.MipiDcsDriver.SWRESET;
+
+/**
+ * Display controllers supported by MipiDcsDriver, with the size of their memory, the defaults for typical panels
+ * and their init sequences.
+ * <p>
+ * Init sequences consist of a command code, the number of parameters and the parameters for each command; DELAY
+ * with a single parameter waits for the given number of milliseconds. The pixel format (COLMOD), memory access
+ * control (MADCTL) and display on (DISPON) commands are sent by the driver after the init sequence.
+ */
+public enum MipiDcsController {
+
+    /** Sitronix ST7789 with 240x320 pixels of memory; the defaults are for 240x240 panels. */
+    ST7789(240, 320, 240, 240, 0, 0, MipiDcsDriver.MADCTL_MY | MipiDcsDriver.MADCTL_MX, 0x50,
+            EnumSet.of(PixelFormat.RGB_444, PixelFormat.RGB_565), true, new int[] {
+            SWRESET, 0,
+            DELAY, 1, 200,
+            SLPOUT, 0,
+            INVON, 0,
+            NORON, 0,
+    }),
+
+    /** Ilitek ILI9341 with 240x320 pixels of memory, based on the Adafruit init sequence. */
+    ILI9341(240, 320, 240, 320, 0, 0, MipiDcsDriver.MADCTL_MX | MipiDcsDriver.MADCTL_BGR, 0x50,
+            EnumSet.of(PixelFormat.RGB_565), true, new int[] {
+            SWRESET, 0,
+            DELAY, 1, 150,
+            0xEF, 3, 0x03, 0x80, 0x02,
+            0xCF, 3, 0x00, 0xC1, 0x30,  // Power control B
+            0xED, 4, 0x64, 0x03, 0x12, 0x81,  // Power on sequence control
+            0xE8, 3, 0x85, 0x00, 0x78,  // Driver timing control A
+            0xCB, 5, 0x39, 0x2C, 0x00, 0x34, 0x02,  // Power control A
+            0xF7, 1, 0x20,  // Pump ratio control
+            0xEA, 2, 0x00, 0x00,  // Driver timing control B
+            0xC0, 1, 0x23,  // Power control 1
+            0xC1, 1, 0x10,  // Power control 2
+            0xC5, 2, 0x3E, 0x28,  // VCOM control 1
+            0xC7, 1, 0x86,  // VCOM control 2
+            0xB1, 2, 0x00, 0x18,  // Frame rate control
+            0xB6, 3, 0x08, 0x82, 0x27,  // Display function control
+            0xF2, 1, 0x00,  // 3 gamma function disable
+            0x26, 1, 0x01,  // Gamma curve
+            0xE0, 15, 0x0F, 0x31, 0x2B, 0x0C, 0x0E, 0x08, 0x4E, 0xF1, 0x37, 0x07, 0x10, 0x03, 0x0E, 0x09, 0x00,
+            0xE1, 15, 0x00, 0x0E, 0x14, 0x03, 0x11, 0x07, 0x31, 0xC1, 0x48, 0x08, 0x0F, 0x0C, 0x31, 0x36, 0x0F,
+            SLPOUT, 0,
+            DELAY, 1, 150,
+    }),
+
+    /**
+     * Sitronix ST7735 with 132x162 pixels of memory, based on the Adafruit "green tab" init sequence for 128x160
+     * panels. The ST7735 doesn't support continued memory writes.
+     */
+    ST7735(132, 162, 128, 160, 2, 1,
+            MipiDcsDriver.MADCTL_MY | MipiDcsDriver.MADCTL_MX | MipiDcsDriver.MADCTL_BGR, 0x00,
+            EnumSet.of(PixelFormat.RGB_444, PixelFormat.RGB_565), false, new int[] {
+            SWRESET, 0,
+            DELAY, 1, 150,
+            SLPOUT, 0,
+            DELAY, 1, 255,
+            0xB1, 3, 0x01, 0x2C, 0x2D,  // Frame rate control, normal mode
+            0xB2, 3, 0x01, 0x2C, 0x2D,  // Frame rate control, idle mode
+            0xB3, 6, 0x01, 0x2C, 0x2D, 0x01, 0x2C, 0x2D,  // Frame rate control, partial mode
+            0xB4, 1, 0x07,  // Display inversion control
+            0xC0, 3, 0xA2, 0x02, 0x84,  // Power control 1
+            0xC1, 1, 0xC5,  // Power control 2
+            0xC2, 2, 0x0A, 0x00,  // Power control 3
+            0xC3, 2, 0x8A, 0x2A,  // Power control 4
+            0xC4, 2, 0x8A, 0xEE,  // Power control 5
+            0xC5, 1, 0x0E,  // VCOM control
+            INVOFF, 0,
+            0xE0, 16, 0x02, 0x1C, 0x07, 0x12, 0x37, 0x32, 0x29, 0x2D,
+                    0x29, 0x25, 0x2B, 0x39, 0x00, 0x01, 0x03, 0x10,
+            0xE1, 16, 0x03, 0x1D, 0x07, 0x06, 0x2E, 0x2C, 0x29, 0x2D,
+                    0x2E, 0x2E, 0x37, 0x3F, 0x00, 0x00, 0x02, 0x10,
+            NORON, 0,
+            DELAY, 1, 10,
+    }),
+
+    /** Galaxycore GC9A01 for round 240x240 panels, based on the Adafruit init sequence. */
+    GC9A01(240, 240, 240, 240, 0, 0, MipiDcsDriver.MADCTL_MX | MipiDcsDriver.MADCTL_BGR, 0x00,
+            EnumSet.of(PixelFormat.RGB_565), true, new int[] {
+            SWRESET, 0,
+            DELAY, 1, 150,
+            0xEF, 0,  // Inter register enable 2
+            0xEB, 1, 0x14,
+            0xFE, 0,  // Inter register enable 1
+            0xEF, 0,
+            0xEB, 1, 0x14,
+            0x84, 1, 0x40,
+            0x85, 1, 0xFF,
+            0x86, 1, 0xFF,
+            0x87, 1, 0xFF,
+            0x88, 1, 0x0A,
+            0x89, 1, 0x21,
+            0x8A, 1, 0x00,
+            0x8B, 1, 0x80,
+            0x8C, 1, 0x01,
+            0x8D, 1, 0x01,
+            0x8E, 1, 0xFF,
+            0x8F, 1, 0xFF,
+            0xB6, 2, 0x00, 0x00,  // Display function control
+            0x90, 4, 0x08, 0x08, 0x08, 0x08,
+            0xBD, 1, 0x06,
+            0xBC, 1, 0x00,
+            0xFF, 3, 0x60, 0x01, 0x04,
+            0xC3, 1, 0x13,  // Power control 2
+            0xC4, 1, 0x13,  // Power control 3
+            0xC9, 1, 0x22,  // Power control 4
+            0xBE, 1, 0x11,
+            0xE1, 2, 0x10, 0x0E,
+            0xDF, 3, 0x21, 0x0C, 0x02,
+            0xF0, 6, 0x45, 0x09, 0x08, 0x08, 0x26, 0x2A,  // Gamma 1
+            0xF1, 6, 0x43, 0x70, 0x72, 0x36, 0x37, 0x6F,  // Gamma 2
+            0xF2, 6, 0x45, 0x09, 0x08, 0x08, 0x26, 0x2A,  // Gamma 3
+            0xF3, 6, 0x43, 0x70, 0x72, 0x36, 0x37, 0x6F,  // Gamma 4
+            0xED, 2, 0x1B, 0x0B,
+            0xAE, 1, 0x77,
+            0xCD, 1, 0x63,
+            0x70, 9, 0x07, 0x07, 0x04, 0x0E, 0x0F, 0x09, 0x07, 0x08, 0x03,
+            0xE8, 1, 0x34,  // Frame rate
+            0x62, 12, 0x18, 0x0D, 0x71, 0xED, 0x70, 0x70, 0x18, 0x0F, 0x71, 0xEF, 0x70, 0x70,
+            0x63, 12, 0x18, 0x11, 0x71, 0xF1, 0x70, 0x70, 0x18, 0x13, 0x71, 0xF3, 0x70, 0x70,
+            0x64, 7, 0x28, 0x29, 0xF1, 0x01, 0xF1, 0x00, 0x07,
+            0x66, 10, 0x3C, 0x00, 0xCD, 0x67, 0x45, 0x45, 0x10, 0x00, 0x00, 0x00,
+            0x67, 10, 0x00, 0x3C, 0x00, 0x00, 0x00, 0x01, 0x54, 0x10, 0x32, 0x98,
+            0x74, 7, 0x10, 0x85, 0x80, 0x00, 0x00, 0x4E, 0x00,
+            0x98, 2, 0x3E, 0x07,
+            INVON, 0,
+            SLPOUT, 0,
+            DELAY, 1, 120,
+    });
+
+    private final int memoryColumns;
+    private final int memoryRows;
+    private final int defaultWidth;
+    private final int defaultHeight;
+    private final int defaultColumnOffset;
+    private final int defaultRowOffset;
+    private final int madctl;
+    private final int colmodInterfaceFormat;
+    private final EnumSet<PixelFormat> pixelFormats;
+    private final boolean writeContinueSupported;
+    private final int[] initSequence;
+
+    MipiDcsController(int memoryColumns, int memoryRows, int defaultWidth, int defaultHeight,
+                      int defaultColumnOffset, int defaultRowOffset, int madctl, int colmodInterfaceFormat,
+                      EnumSet<PixelFormat> pixelFormats, boolean writeContinueSupported, int[] initSequence) {
+        this.memoryColumns = memoryColumns;
+        this.memoryRows = memoryRows;
+        this.defaultWidth = defaultWidth;
+        this.defaultHeight = defaultHeight;
+        this.defaultColumnOffset = defaultColumnOffset;
+        this.defaultRowOffset = defaultRowOffset;
+        this.madctl = madctl;
+        this.colmodInterfaceFormat = colmodInterfaceFormat;
+        this.pixelFormats = pixelFormats;
+        this.writeContinueSupported = writeContinueSupported;
+        this.initSequence = initSequence;
+    }
+
+    /** The number of columns of the controller memory. */
+    public int getMemoryColumns() {
+        return memoryColumns;
+    }
+
+    /** The number of rows of the controller memory. */
+    public int getMemoryRows() {
+        return memoryRows;
+    }
+
+    /** The width of typical panels using this controller. */
+    public int getDefaultWidth() {
+        return defaultWidth;
+    }
+
+    /** The height of typical panels using this controller. */
+    public int getDefaultHeight() {
+        return defaultHeight;
+    }
+
+    /** The first memory column shown on typical panels, in the native orientation of the memory. */
+    public int getDefaultColumnOffset() {
+        return defaultColumnOffset;
+    }
+
+    /** The first memory row shown on typical panels, in the native orientation of the memory. */
+    public int getDefaultRowOffset() {
+        return defaultRowOffset;
+    }
+
+    /**
+     * The memory access control (MADCTL) value showing typical panels upright, including the color order bit.
+     * The other rotations are derived from this value.
+     */
+    public int getMadctl() {
+        return madctl;
+    }
+
+    /** Returns true if this controller supports the given pixel format. */
+    public boolean supportsPixelFormat(PixelFormat pixelFormat) {
+        return pixelFormats.contains(pixelFormat);
+    }
+
+    /** Returns a copy of the init sequence. */
+    public int[] getInitSequence() {
+        return initSequence.clone();
+    }
+
+    /** The RGB interface bits of the COLMOD parameter, combined with the control interface format. */
+    int getColmodInterfaceFormat() {
+        return colmodInterfaceFormat;
+    }
+
+    /** True if the controller supports continuing the previous memory write (RAMWRC). */
+    boolean isWriteContinueSupported() {
+        return writeContinueSupported;
+    }
+}
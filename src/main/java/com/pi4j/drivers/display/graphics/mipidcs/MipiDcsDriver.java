@@ -0,0 +1,647 @@
+package com.pi4j.drivers.display.graphics.mipidcs;
+
+import com.pi4j.drivers.display.graphics.GraphicsDisplay;
+import com.pi4j.drivers.display.graphics.GraphicsDisplayDriver;
+import com.pi4j.drivers.display.graphics.GraphicsDisplayInfo;
+import com.pi4j.drivers.display.graphics.PixelFormat;
+import com.pi4j.drivers.display.graphics.spi.SegmentedSpiWriter;
+
+import com.pi4j.io.gpio.digital.DigitalInput;
+import com.pi4j.io.gpio.digital.DigitalOutput;
+import com.pi4j.io.gpio.digital.DigitalState;
+import com.pi4j.io.gpio.digital.DigitalStateChangeEvent;
+import com.pi4j.io.gpio.digital.DigitalStateChangeListener;
+import com.pi4j.io.spi.Spi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A driver for SPI displays with controllers implementing the MIPI Display Command Set, such as the ST7789, ILI9341,
+ * ST7735 and GC9A01 (see MipiDcsController). The controller determines the init sequence and memory layout; the
+ * panel size, its position in the controller memory and the init sequence can be adjusted via the Builder.
+ * <p>
+ * Rotations and vertical scrolling are applied by the controller. Pixel data is transferred in segments by a
+ * background thread while the next pixels are prepared, and consecutive writes avoid redundant address window
+ * commands.
+ */
+public class MipiDcsDriver implements GraphicsDisplayDriver {
+
+    /** A pseudo command in init sequences, waiting for the number of milliseconds given as its parameter. */
+    public static final int DELAY = -1;
+
+    static final int SWRESET = 0x01;
+    static final int SLPOUT = 0x11;
+    static final int NORON = 0x13;
+    static final int INVOFF = 0x20;
+    static final int INVON = 0x21;
+    static final int DISPON = 0x29;
+    static final int CASET = 0x2A;
+    static final int RASET = 0x2B;
+    static final int RAMWR = 0x2C;
+    static final int VSCRDEF = 0x33;
+    static final int TEON = 0x35;
+    static final int MADCTL = 0x36;
+    static final int VSCSAD = 0x37;
+    static final int COLMOD = 0x3A;
+    static final int RAMWRC = 0x3C;
+
+    static final int COLMOD_CONTROL_12BIT = 0x03;
+    static final int COLMOD_CONTROL_16BIT = 0x05;
+
+    static final int MADCTL_MY = 0x80;
+    static final int MADCTL_MX = 0x40;
+    static final int MADCTL_MV = 0x20;
+    static final int MADCTL_BGR = 0x08;
+
+    static final int TEON_VBLANK_ONLY = 0x00;
+
+    private static Logger log = LoggerFactory.getLogger(MipiDcsDriver.class);
+
+    /** The default spidev kernel buffer size, used if the actual value can't be determined. */
+    private static final int DEFAULT_SPIDEV_BUFFER_SIZE = 4096;
+    private static final Path SPIDEV_BUFFER_SIZE_PATH = Path.of("/sys/module/spidev/parameters/bufsiz");
+    /** How long to wait for a TE pulse before sending a frame anyway; about two refreshes at the default 60 Hz. */
+    private static final long TE_TIMEOUT_MILLIS = 40;
+
+    /**
+     * A builder for drivers, starting with the defaults of the given controller.
+     */
+    public static class Builder {
+        private final Spi spi;
+        private final DigitalOutput dc;
+        private final MipiDcsController controller;
+        private DigitalInput te;
+        private int width;
+        private int height;
+        private int columnOffset;
+        private int rowOffset;
+        private int madctl;
+        private PixelFormat pixelFormat = PixelFormat.RGB_565;
+        private int[] initSequence;
+        private int maxTransferSize;
+
+        public Builder(Spi spi, DigitalOutput dc, MipiDcsController controller) {
+            this.spi = spi;
+            this.dc = dc;
+            this.controller = controller;
+            this.width = controller.getDefaultWidth();
+            this.height = controller.getDefaultHeight();
+            this.columnOffset = controller.getDefaultColumnOffset();
+            this.rowOffset = controller.getDefaultRowOffset();
+            this.madctl = controller.getMadctl();
+            this.initSequence = controller.getInitSequence();
+        }
+
+        /** Sets the size of the panel in its upright orientation. */
+        public Builder size(int width, int height) {
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        /**
+         * Sets the first memory column and row shown on the panel, in the native orientation of the controller
+         * memory (i.e. with a MADCTL value of 0).
+         */
+        public Builder offset(int column, int row) {
+            this.columnOffset = column;
+            this.rowOffset = row;
+            return this;
+        }
+
+        /**
+         * Sets the memory access control (MADCTL) value showing the panel upright, including the color order bit.
+         * The row / column exchange bit (MV) must not be set.
+         */
+        public Builder madctl(int madctl) {
+            this.madctl = madctl;
+            return this;
+        }
+
+        /** Sets the pixel format; RGB_565 by default. */
+        public Builder pixelFormat(PixelFormat pixelFormat) {
+            this.pixelFormat = pixelFormat;
+            return this;
+        }
+
+        /** Replaces the init sequence of the controller; see MipiDcsController for the format. */
+        public Builder initSequence(int... initSequence) {
+            this.initSequence = initSequence.clone();
+            return this;
+        }
+
+        /**
+         * Sets the tearing effect (TE) output of the controller, if connected. Frames are then synchronized with
+         * the refresh of the panel (see startFrame()).
+         */
+        public Builder tearingEffectInput(DigitalInput te) {
+            this.te = te;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a single SPI transfer in bytes; the spidev kernel buffer size by default (see
+         * readSpidevBufferSize()).
+         */
+        public Builder maxTransferSize(int maxTransferSize) {
+            this.maxTransferSize = maxTransferSize;
+            return this;
+        }
+
+        public MipiDcsDriver build() {
+            return new MipiDcsDriver(this);
+        }
+    }
+
+    private final MipiDcsController controller;
+    private final int panelWidth;
+    private final int panelHeight;
+    // The position of the panel in the controller memory, in its native orientation.
+    private final int columnOffset;
+    private final int rowOffset;
+    /** The memory access control value for ROTATE_0. */
+    private final int baseMadctl;
+
+    // The offsets of the visible area in the controller memory for the current rotation.
+    private int xOffset;
+    private int yOffset;
+    private int madctl;
+
+    // The scroll range in display rows and the number of rows it is scrolled up by; scrollBottom is 0 if unset.
+    private int scrollTop;
+    private int scrollBottom;
+    private int scrollOffset;
+
+    private final byte[] addrBuf = new byte[4];
+
+    private final Spi spi;
+    private final SegmentedSpiWriter writer;
+    private final byte[] dataByte = new byte[1];
+    private final DigitalOutput dc;
+    /** The tearing effect output of the controller, or null if not connected. */
+    private final DigitalInput te;
+    private final DigitalStateChangeListener teListener = this::onTearingEffect;
+    private final Object teLock = new Object();
+    /** The number of TE pulses received, each marking the start of a vertical blanking interval. */
+    private long teCount;
+    /** False after a TE timeout, until the next pulse arrives; frames are sent without waiting meanwhile. */
+    private boolean tePulsing = true;
+    private boolean teTimeoutLogged;
+    private final int maxTransferSize;
+    private GraphicsDisplayInfo displayInfo;
+
+    // Framing state, used to avoid redundant DC pin changes and address window commands.
+    /** The current level of the DC pin; true for data. */
+    private boolean dcData;
+    /** The column and row ranges of the address window, or -1 if unknown. */
+    private int windowXMin = -1;
+    private int windowXMax = -1;
+    private int windowYMin = -1;
+    private int windowYMax = -1;
+    /** The controller row following the last RAM write, or -1 if other commands were sent since. */
+    private int nextRow = -1;
+
+    /**
+     * Creates a driver instance with the configuration of the given builder and initializes the display. Pixel
+     * data is split into segments of the maximum transfer size, which are transferred by a background thread while
+     * the next pixels are prepared.
+     */
+    protected MipiDcsDriver(Builder builder) {
+        this.controller = builder.controller;
+        if (!controller.supportsPixelFormat(builder.pixelFormat)) {
+            throw new IllegalArgumentException(
+                    "Unsupported pixel format for " + controller + ": " + builder.pixelFormat);
+        }
+        if (builder.width <= 0 || builder.height <= 0 || builder.columnOffset < 0 || builder.rowOffset < 0
+                || builder.columnOffset + builder.width > controller.getMemoryColumns()
+                || builder.rowOffset + builder.height > controller.getMemoryRows()) {
+            throw new IllegalArgumentException("Panel size " + builder.width + "x" + builder.height + " at "
+                    + builder.columnOffset + ", " + builder.rowOffset + " exceeds the controller memory");
+        }
+        if ((builder.madctl & MADCTL_MV) != 0) {
+            throw new IllegalArgumentException("The MV bit must not be set in the base MADCTL value");
+        }
+        this.spi = builder.spi;
+        this.dc = builder.dc;
+        this.te = builder.te;
+        this.panelWidth = builder.width;
+        this.panelHeight = builder.height;
+        this.columnOffset = builder.columnOffset;
+        this.rowOffset = builder.rowOffset;
+        this.baseMadctl = builder.madctl;
+
+        int segmentSize = builder.maxTransferSize > 0 ? builder.maxTransferSize : readSpidevBufferSize();
+        this.writer = new SegmentedSpiWriter(spi, segmentSize);
+        // Accept enough data per call to fill all segment buffers, so the transfer overlaps the next conversion.
+        this.maxTransferSize = (int) Math.min(
+                (long) segmentSize * SegmentedSpiWriter.DEFAULT_BUFFER_COUNT, Integer.MAX_VALUE);
+        this.displayInfo = new GraphicsDisplayInfo(panelWidth, panelHeight, builder.pixelFormat,
+                GraphicsDisplayInfo.granularityForBits(builder.pixelFormat.getBitCount()), this.maxTransferSize);
+
+        dc.off();
+        init(builder.initSequence);
+
+        if (te != null) {
+            te.addListener(teListener);
+        }
+    }
+
+    /**
+     * Returns the maximum size of a single spidev transfer as configured for the kernel module (often raised to
+     * 64k or more via spidev.bufsiz), or the kernel default of 4096 if it can't be determined.
+     */
+    public static int readSpidevBufferSize() {
+        try {
+            return Integer.parseInt(Files.readString(SPIDEV_BUFFER_SIZE_PATH).trim());
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Unable to read {}, assuming {}", SPIDEV_BUFFER_SIZE_PATH, DEFAULT_SPIDEV_BUFFER_SIZE);
+            return DEFAULT_SPIDEV_BUFFER_SIZE;
+        }
+    }
+
+    /** The controller this driver was created for. */
+    public MipiDcsController getController() {
+        return controller;
+    }
+
+    private void init(int[] initSequence) {
+        int i = 0;
+        while (i < initSequence.length) {
+            int code = initSequence[i];
+            int count = initSequence[i + 1];
+            if (code == DELAY) {
+                try {
+                    Thread.sleep(initSequence[i + 2]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            } else {
+                command(code);
+                for (int j = 0; j < count; j++) {
+                    data(initSequence[i + 2 + j]);
+                }
+            }
+            i += 2 + count;
+        }
+
+        command(COLMOD);
+        switch (displayInfo.getPixelFormat()) {
+            case RGB_444:
+                data(controller.getColmodInterfaceFormat() | COLMOD_CONTROL_12BIT);
+                break;
+            case RGB_565:
+                data(controller.getColmodInterfaceFormat() | COLMOD_CONTROL_16BIT);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported pixel format: " + displayInfo.getPixelFormat());
+        }
+
+        applyRotation(GraphicsDisplay.Rotation.ROTATE_0);
+
+        command(DISPON);
+
+        if (te != null) {
+            command(TEON);
+            data(TEON_VBLANK_ONLY);
+        }
+    }
+
+    /**
+     * Sets the memory access order for the given rotation, derived from the ROTATE_0 value: 180 degrees mirror both
+     * axes, 90 degrees exchange rows and columns and mirror one of them. The unused parts of the controller memory
+     * end up on a different side of the visible area depending on the scan direction, so the offsets change as well.
+     */
+    private void applyRotation(GraphicsDisplay.Rotation rotation) {
+        switch (rotation) {
+            case ROTATE_0:
+                madctl = baseMadctl;
+                break;
+            case ROTATE_90:
+                madctl = (baseMadctl ^ MADCTL_MX) | MADCTL_MV;
+                break;
+            case ROTATE_180:
+                madctl = baseMadctl ^ (MADCTL_MX | MADCTL_MY);
+                break;
+            case ROTATE_270:
+                madctl = (baseMadctl ^ MADCTL_MY) | MADCTL_MV;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        int memoryColumn = (madctl & MADCTL_MX) != 0
+                ? controller.getMemoryColumns() - columnOffset - panelWidth : columnOffset;
+        int memoryRow = (madctl & MADCTL_MY) != 0
+                ? controller.getMemoryRows() - rowOffset - panelHeight : rowOffset;
+        PixelFormat pixelFormat = displayInfo.getPixelFormat();
+        boolean swap = (madctl & MADCTL_MV) != 0;
+        xOffset = swap ? memoryRow : memoryColumn;
+        yOffset = swap ? memoryColumn : memoryRow;
+        displayInfo = new GraphicsDisplayInfo(
+                swap ? panelHeight : panelWidth,
+                swap ? panelWidth : panelHeight,
+                pixelFormat,
+                GraphicsDisplayInfo.granularityForBits(pixelFormat.getBitCount()),
+                maxTransferSize);
+
+        command(MADCTL);
+        data(madctl);
+        windowXMin = -1;
+        windowXMax = -1;
+        windowYMin = -1;
+        windowYMax = -1;
+
+        // The scroll range refers to the previous orientation.
+        if (scrollBottom != 0) {
+            scrollTop = 0;
+            scrollBottom = 0;
+            scrollOffset = 0;
+            command(VSCRDEF, 0, controller.getMemoryRows(), 0);
+            command(VSCSAD, 0);
+        }
+    }
+
+    /**
+     * Returns the controller row for the given display row, taking the scroll position into account. Rows in the
+     * scroll range are written where the scrolled view currently shows them.
+     */
+    private int controllerRow(int y) {
+        if (y >= scrollTop && y < scrollBottom) {
+            y = scrollTop + (y - scrollTop + scrollOffset) % (scrollBottom - scrollTop);
+        }
+        return yOffset + y;
+    }
+
+    private void command(int x) {
+        if (x < 0 || x > 0xff) {
+            throw new IllegalArgumentException(controller + " bad command value " + x);
+        }
+
+        log.trace("Command: {}", x);
+
+        setDc(false);
+        spi.write(x);
+        nextRow = -1;
+    }
+
+    /** Sends a command parameterized with screen address data */
+    private void command(int commandCode, int min, int max) {
+        command(commandCode);
+        addrBuf[0] = (byte) (min >> 8);
+        addrBuf[1] = (byte) min;
+        addrBuf[2] = (byte) (max >> 8);
+        addrBuf[3] = (byte) max;
+        data(addrBuf);
+    }
+
+    /** Sends a command with the given 16 bit parameters. */
+    private void command(int commandCode, int... values) {
+        command(commandCode);
+        byte[] buf = new byte[values.length * 2];
+        for (int i = 0; i < values.length; i++) {
+            buf[2 * i] = (byte) (values[i] >> 8);
+            buf[2 * i + 1] = (byte) values[i];
+        }
+        data(buf);
+    }
+
+    private void data(int x) {
+        if (x < 0 || x > 0xff) {
+            throw new IllegalArgumentException(controller + " bad data value " + x);
+        }
+        setDc(true);
+        dataByte[0] = (byte) x;
+        writer.write(dataByte, 0, 1);
+    }
+
+    private void data(byte[] buf) {
+        data(buf, 0, buf.length);
+    }
+
+    private void data(byte[] x, int offset, int length) {
+        if (log.isTraceEnabled()) { // Avoid large string allocation if logging is off.
+            String raw = java.util.HexFormat.of().formatHex(x);
+            if (raw.length() > 100) {
+                log.trace("Data: {} {}", length, raw.substring(0, 80));
+            } else {
+                log.trace("Data: {} {}", length, raw);
+            }
+        }
+        setDc(true);
+        writer.write(x, offset, length);
+    }
+
+    /**
+     * Sets the DC pin to the given level (true for data) if it isn't already set. Pending data is transferred
+     * before switching to command mode.
+     */
+    private void setDc(boolean data) {
+        if (data != dcData) {
+            if (data) {
+                dc.on();
+            } else {
+                writer.sync();
+                dc.off();
+            }
+            dcData = data;
+        }
+    }
+
+    @Override
+    public GraphicsDisplayInfo getDisplayInfo() {
+        return displayInfo;
+    }
+
+    /** All rotations are supported via the memory access control register. */
+    @Override
+    public boolean supportsRotation(GraphicsDisplay.Rotation rotation) {
+        return true;
+    }
+
+    @Override
+    public void setRotation(GraphicsDisplay.Rotation rotation) {
+        applyRotation(rotation);
+    }
+
+    /** Vertical scrolling is supported unless rows and columns are exchanged for a 90 degree rotation. */
+    @Override
+    public boolean supportsScrolling() {
+        return (madctl & MADCTL_MV) == 0;
+    }
+
+    /**
+     * Scrolls the given range of rows via the vertical scrolling commands (VSCRDEF / VSCSAD), see
+     * GraphicsDisplayDriver.scroll().
+     */
+    @Override
+    public void scroll(int top, int bottom, int rows) {
+        if (!supportsScrolling()) {
+            throw new UnsupportedOperationException("Scrolling is not supported in 90 degree rotations");
+        }
+        if (top < 0 || bottom > displayInfo.getHeight() || top >= bottom) {
+            throw new IllegalArgumentException("Invalid scroll range " + top + " - " + bottom);
+        }
+        int memoryRows = controller.getMemoryRows();
+        int area = bottom - top;
+        // With MY set, display rows run backwards in the controller memory.
+        boolean reversed = (madctl & MADCTL_MY) != 0;
+        int topFixedArea = reversed ? memoryRows - yOffset - bottom : yOffset + top;
+        if (top != scrollTop || bottom != scrollBottom) {
+            scrollTop = top;
+            scrollBottom = bottom;
+            scrollOffset = 0;
+            command(VSCRDEF, topFixedArea, area, memoryRows - topFixedArea - area);
+        }
+        scrollOffset = Math.floorMod(scrollOffset + rows, area);
+        command(VSCSAD, topFixedArea + (reversed ? (area - scrollOffset) % area : scrollOffset));
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, byte[] data) {
+        log.trace("setPixels {}", data.length);
+        int rowSize = width * displayInfo.getPixelFormat().getBitCount() / 8;
+        int row = 0;
+        while (row < height) {
+            // Rows wrapping around in the scroll range need a separate address window.
+            int start = controllerRow(y + row);
+            int count = 1;
+            while (row + count < height && controllerRow(y + row + count) == start + count) {
+                count++;
+            }
+            writeRows(xOffset + x, xOffset + x + width - 1, start, data, row * rowSize, count * rowSize);
+            nextRow = start + count;
+            row += count;
+        }
+    }
+
+    /**
+     * Sets the address window to the frame area only if it differs from the current window, so streaming frames to
+     * the same area just takes a RAMWR command, which restarts at the window origin, and the data.
+     */
+    @Override
+    public void streamFrame(int x, int y, int width, int height, byte[] data) {
+        if (scrollOffset != 0) {
+            // Scrolled rows may not be contiguous in the controller memory.
+            GraphicsDisplayDriver.super.streamFrame(x, y, width, height, data);
+            return;
+        }
+        setWindow(xOffset + x, xOffset + x + width - 1, yOffset + y, yOffset + y + height - 1);
+        command(RAMWR); // write to RAM
+        data(data, 0, (width * height * displayInfo.getPixelFormat().getBitCount() + 7) / 8);
+    }
+
+    /**
+     * Writes data to the given columns, starting at the given controller row. The row window extends to the bottom of
+     * the display, so a write directly continuing the previous one with the same columns just needs RAMWRC if the
+     * controller supports it; the column window is only set when it changes.
+     */
+    private void writeRows(int xMin, int xMax, int row, byte[] data, int offset, int length) {
+        if (row == nextRow && xMin == windowXMin && xMax == windowXMax && controller.isWriteContinueSupported()) {
+            command(RAMWRC); // continue writing to RAM
+        } else {
+            setWindow(xMin, xMax, row, yOffset + displayInfo.getHeight() - 1);
+            command(RAMWR); // write to RAM
+        }
+        data(data, offset, length);
+    }
+
+    /** Sets the address window, skipping the column or row range if unchanged. */
+    private void setWindow(int xMin, int xMax, int yMin, int yMax) {
+        if (xMin != windowXMin || xMax != windowXMax) {
+            command(CASET, xMin, xMax); // Column addr set
+            windowXMin = xMin;
+            windowXMax = xMax;
+        }
+        if (yMin != windowYMin || yMax != windowYMax) {
+            command(RASET, yMin, yMax); // Row addr set
+            windowYMin = yMin;
+            windowYMax = yMax;
+        }
+    }
+
+    /**
+     * Waits for the next TE pulse if a TE input is configured, so the frame is written while the panel refreshes
+     * from the start. If no pulse arrives within TE_TIMEOUT_MILLIS, for instance because the pin isn't wired, this
+     * and the following frames are sent without synchronization until a pulse is received again.
+     * <p>
+     * This method only waits and doesn't access the SPI device, so it may be called while another thread transfers
+     * data.
+     */
+    @Override
+    public void startFrame() {
+        if (te == null) {
+            return;
+        }
+        synchronized (teLock) {
+            if (!tePulsing) {
+                return;
+            }
+            long count = teCount;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TE_TIMEOUT_MILLIS);
+            while (teCount == count) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    tePulsing = false;
+                    if (!teTimeoutLogged) {
+                        log.warn("No TE pulse received within {} ms; sending frames unsynchronized until it pulses",
+                                TE_TIMEOUT_MILLIS);
+                        teTimeoutLogged = true;
+                    }
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(teLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
+    /** Returns true if a TE input is configured and has pulsed since the last timeout, see startFrame(). */
+    @Override
+    public boolean synchronizesFrames() {
+        if (te == null) {
+            return false;
+        }
+        synchronized (teLock) {
+            return tePulsing;
+        }
+    }
+
+    /** Called by Pi4J on TE changes; the rising edge marks the start of the vertical blanking interval. */
+    private void onTearingEffect(DigitalStateChangeEvent event) {
+        if (event.state() == DigitalState.HIGH) {
+            synchronized (teLock) {
+                teCount++;
+                tePulsing = true;
+                teLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the SPI throughput achieved while transferring pixel data, in bytes per second. The theoretical limit
+     * is an eighth of the SPI clock rate.
+     */
+    public double getBytesPerSecond() {
+        return writer.getBytesPerSecond();
+    }
+
+    @Override
+    public void close() {
+        if (te != null) {
+            te.removeListener(teListener);
+        }
+        writer.close();
+        spi.close();
+        dc.shutdown(dc.provider().context());
+    }
+}
@@ -0,0 +1,166 @@
+package com.pi4j.drivers.display.graphics.spi;
+
+import com.pi4j.io.spi.Spi;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes large blocks of data to an SPI device, split into segments of at most the spidev kernel buffer size.
+ * The segments are copied to a small pool of reusable buffers and transferred by a dedicated thread, so write()
+ * returns as soon as the data is copied and the caller can prepare the next block while the previous one is
+ * transferred. Writes are transferred in order; sync() waits until all of them have completed, for instance
+ * before switching the DC pin of a display controller to command mode.
+ * <p>
+ * Small writes are sent directly if no transfer is pending, avoiding the thread handoff for command parameters.
+ * <p>
+ * Instances are not thread safe; the pipelining takes place internally.
+ */
+public class SegmentedSpiWriter implements Closeable {
+
+    /** The default number of segment buffers, allowing one segment to be filled while two are queued. */
+    public static final int DEFAULT_BUFFER_COUNT = 3;
+
+    /** Writes up to this size are sent directly if no transfer is pending. */
+    private static final int DIRECT_WRITE_LIMIT = 64;
+
+    private final Spi spi;
+    private final int segmentSize;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final ExecutorService executor;
+    private Future<?> lastTransfer;
+    private volatile RuntimeException failure;
+
+    // Statistics, only updated on the transfer thread or while no transfer is pending.
+    private volatile long byteCount;
+    private volatile long busyNanos;
+
+    /** Creates a writer with segments of the given size and the default number of buffers. */
+    public SegmentedSpiWriter(Spi spi, int segmentSize) {
+        this(spi, segmentSize, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Creates a writer with the given segment size, typically the spidev kernel buffer size, and the given number
+     * of segment buffers.
+     */
+    public SegmentedSpiWriter(Spi spi, int segmentSize, int bufferCount) {
+        if (segmentSize <= 0 || bufferCount <= 0) {
+            throw new IllegalArgumentException("segmentSize and bufferCount must be > 0");
+        }
+        this.spi = spi;
+        this.segmentSize = segmentSize;
+        freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(new byte[segmentSize]);
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SPI transfer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** The maximum number of bytes sent in a single SPI transfer. */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Queues the given data for transfer, blocking only while all segment buffers are in use. The data array can
+     * be reused as soon as this method returns.
+     */
+    public void write(byte[] data, int offset, int length) {
+        checkFailure();
+        if (length <= DIRECT_WRITE_LIMIT && (lastTransfer == null || lastTransfer.isDone())) {
+            transfer(data, offset, length);
+            return;
+        }
+        while (length > 0) {
+            int size = Math.min(length, segmentSize);
+            byte[] buffer;
+            try {
+                buffer = freeBuffers.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            System.arraycopy(data, offset, buffer, 0, size);
+            lastTransfer = executor.submit(() -> {
+                try {
+                    if (failure == null) {
+                        transfer(buffer, 0, size);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    freeBuffers.add(buffer);
+                }
+            });
+            offset += size;
+            length -= size;
+        }
+    }
+
+    /** Waits until all queued data has been transferred, rethrowing any exception thrown by the SPI device. */
+    public void sync() {
+        if (lastTransfer != null) {
+            try {
+                lastTransfer.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                lastTransfer = null;
+            }
+        }
+        checkFailure();
+    }
+
+    /** The total number of bytes transferred so far. */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the throughput achieved while transfers were in progress, in bytes per second, or 0 if nothing was
+     * transferred yet. Comparing this value to an eighth of the SPI clock rate shows the protocol and system call
+     * overhead.
+     */
+    public double getBytesPerSecond() {
+        long nanos = busyNanos;
+        return nanos == 0 ? 0 : byteCount * 1e9 / nanos;
+    }
+
+    /** Waits for pending transfers and stops the transfer thread. The SPI device is not closed. */
+    @Override
+    public void close() {
+        try {
+            sync();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void transfer(byte[] data, int offset, int length) {
+        long start = System.nanoTime();
+        spi.write(data, offset, length);
+        busyNanos += System.nanoTime() - start;
+        byteCount += length;
+    }
+
+    private void checkFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.pi4j.drivers.display.graphics.ws281x;
 
+import com.pi4j.drivers.display.graphics.ColorCorrection;
 import com.pi4j.drivers.display.graphics.GraphicsDisplayDriver;
 import com.pi4j.drivers.display.graphics.GraphicsDisplayInfo;
 import com.pi4j.drivers.display.graphics.PixelFormat;
@@ -34,6 +35,8 @@ public class Ws281xDriver implements GraphicsDisplayDriver {
     private static final int BIT_STRETCH = 4;
     /** The baud rate the SPI channel needs to be configured to. */
     public static final int SPI_BAUD = 800_000 * BIT_STRETCH;
+    /** The SPI bit patterns for all byte values; BIT_STRETCH bytes per value. */
+    private static final byte[] ENCODED_VALUES = createEncodedValues();
 
     /** A buffer of the transformed pixels in the format they will be sent over SPI */
     private final byte[] spiBuffer;
@@ -42,7 +45,8 @@ public class Ws281xDriver implements GraphicsDisplayDriver {
     private final int[] pixelMap;
 
     private Instant busyUntil = Instant.now();
-    private int brightness = 64;
+    /** Applies the brightness with a table lookup per channel. */
+    private ColorCorrection brightnessCorrection = new ColorCorrection(1, 64);
 
     public static int[] createPixelMap(int width, int height, Pattern pattern) {
         int[] result = new int[width * height];
@@ -103,17 +107,20 @@ public class Ws281xDriver implements GraphicsDisplayDriver {
 
     @Override
     public void setPixels(int x, int y, int width, int height, byte[] bytes) {
+        ColorCorrection brightnessCorrection = this.brightnessCorrection;
         int src = 0;
-        int lastChangedByte = 0;
+        int lastChangedByte = -1;
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++) {
                 int dst = getPixelAddress(x + j, y + i);
                 for (int k = 0; k < COLOR_CHANNELS; k++) {
                     // Swap color order to GRB
-                    int value = (bytes[src + k == 0 ? 1 : k == 1 ? 0 : 2] & 0xff) * brightness / 255;
-                    for (int bitIdex = 0; bitIdex < 8; bitIdex += 2) {
-                        byte newValue = (byte) ((((value << bitIdex) & 0x80) == 0 ? 0b1000_0000 : 0b1100_0000)
-                                | (((value << bitIdex) & 0x40) == 0 ? 0b1000 : 0b1100));
+                    int value = k == 0 ? brightnessCorrection.green(bytes[src + 1] & 0xff)
+                            : k == 1 ? brightnessCorrection.red(bytes[src] & 0xff)
+                            : brightnessCorrection.blue(bytes[src + 2] & 0xff);
+                    int pattern = value * BIT_STRETCH;
+                    for (int b = 0; b < BIT_STRETCH; b++) {
+                        byte newValue = ENCODED_VALUES[pattern + b];
                         if (newValue != spiBuffer[dst]) {
                             spiBuffer[dst] = newValue;
                             lastChangedByte = dst;
@@ -127,17 +134,17 @@ public class Ws281xDriver implements GraphicsDisplayDriver {
         // We always need to start at 0, but we only need to send up to the last changed pixel.
         // Dividing and then multiplying makes sure we always send full pixel data and don't stop somewhere in the
         // middle of a pixel.
-        int lastChangedPixel = lastChangedByte / COLOR_CHANNELS / BIT_STRETCH;
-        if (lastChangedPixel > 0) {
+        if (lastChangedByte >= 0) {
+            int pixelCount = lastChangedByte / COLOR_CHANNELS / BIT_STRETCH + 1;
             materializeDelay();
-            spi.write(spiBuffer, 0, lastChangedPixel * COLOR_CHANNELS * BIT_STRETCH);
+            spi.write(spiBuffer, 0, pixelCount * COLOR_CHANNELS * BIT_STRETCH);
             setDelayNanos(50000);
         }
     }
 
     /** Sets the brightness of the LED matrix to the given value between 0 and 255. The default value is 64. */
     public void setBrightness(int brightness) {
-        this.brightness = Math.max(0, Math.min(brightness, 255));
+        this.brightnessCorrection = new ColorCorrection(1, brightness);
     }
 
     @Override
@@ -148,6 +155,21 @@ public class Ws281xDriver implements GraphicsDisplayDriver {
 
     // Private methods
 
+    /**
+     * Encodes each bit of all byte values as a short (0b1000) or long (0b1100) pulse, two bits per SPI byte, so
+     * encoding a channel value takes a single table lookup.
+     */
+    private static byte[] createEncodedValues() {
+        byte[] result = new byte[256 * BIT_STRETCH];
+        for (int value = 0; value < 256; value++) {
+            for (int bitIndex = 0; bitIndex < 8; bitIndex += 2) {
+                result[value * BIT_STRETCH + bitIndex / 2] =
+                        (byte) ((((value << bitIndex) & 0x80) == 0 ? 0b1000_0000 : 0b1100_0000)
+                        | (((value << bitIndex) & 0x40) == 0 ? 0b1000 : 0b1100));
+            }
+        }
+        return result;
+    }
 
     private int getPixelAddress(int x, int y) {
         int pixelIndex = pixelMap[y * displayInfo.getWidth() + x];
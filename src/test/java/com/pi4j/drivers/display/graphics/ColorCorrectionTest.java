@@ -0,0 +1,48 @@
+package com.pi4j.drivers.display.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ColorCorrectionTest {
+
+    @Test
+    public void testIdentity() {
+        ColorCorrection correction = new ColorCorrection(1, 255);
+        for (int i = 0; i < 256; i++) {
+            assertEquals(i, correction.red(i));
+            assertEquals(i, correction.green(i));
+            assertEquals(i, correction.blue(i));
+        }
+        assertEquals(0x123456, correction.apply(0x123456));
+    }
+
+    @Test
+    public void testBrightness() {
+        ColorCorrection correction = new ColorCorrection(1, 64);
+        assertEquals(64, correction.red(255));
+        assertEquals(32, correction.green(128));
+        assertEquals(0, correction.blue(0));
+    }
+
+    @Test
+    public void testGamma() {
+        ColorCorrection correction = new ColorCorrection(2, 255);
+        assertEquals(0, correction.red(0));
+        assertEquals(64, correction.red(128));
+        assertEquals(255, correction.red(255));
+    }
+
+    @Test
+    public void testWhitePoint() {
+        ColorCorrection correction = new ColorCorrection(1, 255, 0xff8000);
+        assertEquals(0xff8000, correction.apply(0xffffff));
+        assertEquals(0x804000, correction.apply(0x808080));
+
+        int[] pixels = {0xffffff, 0x000000, 0x808080};
+        correction.apply(pixels, 1, 2);
+        assertEquals(0xffffff, pixels[0]);
+        assertEquals(0x000000, pixels[1]);
+        assertEquals(0x804000, pixels[2]);
+    }
+}
@@ -1,21 +1,140 @@
 package com.pi4j.drivers.display.graphics;
 
 import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 
 public class FakeGraphicsDisplayDriver implements GraphicsDisplayDriver {
 
     private final byte[] data;
-    private final GraphicsDisplayInfo displayInfo;
+    /** The display info in the native orientation, describing the layout of data. */
+    private final GraphicsDisplayInfo panelInfo;
+    private GraphicsDisplayInfo displayInfo;
+    private boolean hardwareRotation;
+    private boolean hardwareScrolling;
+    private int scrollCount;
+    // The scroll range and the number of rows it is scrolled up by; scrollBottom is 0 if unset.
+    private int scrollTop;
+    private int scrollBottom;
+    private int scrollOffset;
+    private GraphicsDisplay.Rotation rotation = GraphicsDisplay.Rotation.ROTATE_0;
+    private int frameCount;
+    private int transferCount;
+    private int segmentTransferCount;
+    private long transferredPixelCount;
 
     public FakeGraphicsDisplayDriver(int width, int height, PixelFormat pixelFormat) {
-        this.displayInfo = new GraphicsDisplayInfo(width, height, pixelFormat);
+        this(width, height, pixelFormat, Integer.MAX_VALUE);
+    }
+
+    public FakeGraphicsDisplayDriver(int width, int height, PixelFormat pixelFormat, int maxTransferSize) {
+        this.displayInfo = new GraphicsDisplayInfo(width, height, pixelFormat,
+                GraphicsDisplayInfo.granularityForBits(pixelFormat.getBitCount()), maxTransferSize);
+        this.panelInfo = displayInfo;
         this.data = new byte[(displayInfo.getWidth() * displayInfo.getHeight()
                 * displayInfo.getPixelFormat().getBitCount() + 7) / 8];
         checkAlignment(width, "Display width");
     }
 
+    /** Returns the displayed data, taking the scroll position into account. */
     public byte[] getData() {
-        return data;
+        if (scrollOffset == 0) {
+            return data;
+        }
+        int rowSize = displayInfo.getWidth() * displayInfo.getPixelFormat().getBitCount() / 8;
+        byte[] result = new byte[data.length];
+        for (int y = 0; y < displayInfo.getHeight(); y++) {
+            System.arraycopy(data, memoryRow(y) * rowSize, result, y * rowSize, rowSize);
+        }
+        return result;
+    }
+
+    /**
+     * Makes this driver report support for hardware scrolling in the native orientation, emulating a controller
+     * that displays the rows of the scroll range with an offset.
+     */
+    public void setHardwareScrolling(boolean enabled) {
+        hardwareScrolling = enabled;
+    }
+
+    /** The number of scroll calls received so far. */
+    public int getScrollCount() {
+        return scrollCount;
+    }
+
+    /** The number of startFrame calls received so far. */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /** The number of setPixels calls received so far. */
+    public int getTransferCount() {
+        return transferCount;
+    }
+
+    /** The number of setPixels calls with a memory segment received so far. */
+    public int getSegmentTransferCount() {
+        return segmentTransferCount;
+    }
+
+    /** The total number of pixels received via setPixels so far. */
+    public long getTransferredPixelCount() {
+        return transferredPixelCount;
+    }
+
+    /**
+     * Makes this driver report support for all rotations, emulating a controller that maps rotated coordinates
+     * to the native orientation, so the data matches software rotation.
+     */
+    public void setHardwareRotation(boolean enabled) {
+        hardwareRotation = enabled;
+    }
+
+    /** The rotation set via setRotation(). */
+    public GraphicsDisplay.Rotation getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public boolean supportsRotation(GraphicsDisplay.Rotation rotation) {
+        return hardwareRotation;
+    }
+
+    @Override
+    public void setRotation(GraphicsDisplay.Rotation rotation) {
+        this.rotation = rotation;
+        boolean swap = rotation == GraphicsDisplay.Rotation.ROTATE_90
+                || rotation == GraphicsDisplay.Rotation.ROTATE_270;
+        displayInfo = new GraphicsDisplayInfo(
+                swap ? panelInfo.getHeight() : panelInfo.getWidth(),
+                swap ? panelInfo.getWidth() : panelInfo.getHeight(),
+                panelInfo.getPixelFormat(),
+                panelInfo.getXGranularity(),
+                panelInfo.getMaxTransferSize());
+    }
+
+    @Override
+    public boolean supportsScrolling() {
+        return hardwareScrolling && rotation == GraphicsDisplay.Rotation.ROTATE_0;
+    }
+
+    @Override
+    public void scroll(int top, int bottom, int rows) {
+        if (!supportsScrolling()) {
+            throw new UnsupportedOperationException();
+        }
+        if (top != scrollTop || bottom != scrollBottom) {
+            scrollTop = top;
+            scrollBottom = bottom;
+            scrollOffset = 0;
+        }
+        scrollOffset = Math.floorMod(scrollOffset + rows, bottom - top);
+        scrollCount++;
+    }
+
+    @Override
+    public void startFrame() {
+        frameCount++;
     }
 
     @Override
@@ -39,18 +158,85 @@ public class FakeGraphicsDisplayDriver implements GraphicsDisplayDriver {
         checkAlignment(x, "x-position");
         checkAlignment(width, "width");
 
+        int size = (width * height * pixelFormat.getBitCount() + 7) / 8;
+        if (size > displayInfo.getMaxTransferSize()) {
+            throw new IllegalArgumentException(
+                    "Transfer size " + size + " exceeds maximum " + displayInfo.getMaxTransferSize());
+        }
+
+        transferCount++;
+        transferredPixelCount += (long) width * height;
+
+        if (rotation != GraphicsDisplay.Rotation.ROTATE_0) {
+            setPixelsRotated(x, y, width, height, data);
+            return;
+        }
+
         for (int i = 0; i < height; i++) {
             int srcPos = (i * width * pixelFormat.getBitCount() + 7) / 8;
-            int dstPos = (((i + y) * getDisplayInfo().getWidth() + x) * pixelFormat.getBitCount() + 7) / 8;
+            int dstPos = ((memoryRow(i + y) * getDisplayInfo().getWidth() + x) * pixelFormat.getBitCount() + 7) / 8;
             int count = (width * pixelFormat.getBitCount() + 7) / 8;
             System.arraycopy(data, srcPos, this.data, dstPos, count);
         }
     }
 
+    @Override
+    public void setPixels(int x, int y, int width, int height, MemorySegment data) {
+        int size = (width * height * displayInfo.getPixelFormat().getBitCount() + 7) / 8;
+        if (data.byteSize() != size) {
+            throw new IllegalArgumentException("Segment size " + data.byteSize() + " doesn't match " + size);
+        }
+        segmentTransferCount++;
+        setPixels(x, y, width, height, data.toArray(ValueLayout.JAVA_BYTE));
+    }
+
     @Override
     public void close() {
     }
 
+    /** Returns the row of data shown at the given display row. */
+    private int memoryRow(int y) {
+        if (y >= scrollTop && y < scrollBottom) {
+            return scrollTop + (y - scrollTop + scrollOffset) % (scrollBottom - scrollTop);
+        }
+        return y;
+    }
+
+    /** Maps each pixel to the native orientation, as a controller with rotated address mode would. */
+    private void setPixelsRotated(int x, int y, int width, int height, byte[] data) {
+        int bitCount = panelInfo.getPixelFormat().getBitCount();
+        int panelWidth = panelInfo.getWidth();
+        int panelHeight = panelInfo.getHeight();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int px = x + j;
+                int py = y + i;
+                int panelX = switch (rotation) {
+                    case ROTATE_0 -> px;
+                    case ROTATE_90 -> panelWidth - 1 - py;
+                    case ROTATE_180 -> panelWidth - 1 - px;
+                    case ROTATE_270 -> py;
+                };
+                int panelY = switch (rotation) {
+                    case ROTATE_0 -> py;
+                    case ROTATE_90 -> px;
+                    case ROTATE_180 -> panelHeight - 1 - py;
+                    case ROTATE_270 -> panelHeight - 1 - px;
+                };
+                int srcBit = (i * width + j) * bitCount;
+                int dstBit = (panelY * panelWidth + panelX) * bitCount;
+                for (int b = 0; b < bitCount; b++) {
+                    int mask = 0x80 >> ((dstBit + b) & 7);
+                    if ((data[(srcBit + b) >> 3] & (0x80 >> ((srcBit + b) & 7))) != 0) {
+                        this.data[(dstBit + b) >> 3] |= (byte) mask;
+                    } else {
+                        this.data[(dstBit + b) >> 3] &= (byte) ~mask;
+                    }
+                }
+            }
+        }
+    }
+
     private void checkAlignment(int x, String target) {
         if ((x * displayInfo.getPixelFormat().getBitCount()) % 8 != 0) {
             throw new IllegalArgumentException("misaligned for " + target + " -- must be aligned on byte address");
@@ -1,10 +1,22 @@
 package com.pi4j.drivers.display.graphics;
 
+import com.pi4j.drivers.display.BitmapFont;
+
 import java.awt.Color;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class GraphicsDisplayTest {
 
@@ -51,4 +63,867 @@ public class GraphicsDisplayTest {
         assertEquals(0x22, data[pos+1]);
         assertEquals(0x33, data[pos+2]);
     }
+
+    @Test
+    public void testScatteredUpdatesAreTransferredSeparately() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(240, 320, PixelFormat.RGB_565);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.fillRect(0, 0, 10, 10, 0x112233);
+        display.fillRect(230, 310, 10, 10, 0x445566);
+        display.flush();
+
+        assertEquals(2, driver.getTransferCount());
+        assertEquals(200, driver.getTransferredPixelCount());
+
+        byte[] data = driver.getData();
+        int pos = (319 * 240 + 239) * 2;
+        assertEquals((byte) (PixelFormat.RGB_565.fromRgb(0x445566) >> 8), data[pos]);
+        assertEquals((byte) PixelFormat.RGB_565.fromRgb(0x445566), data[pos + 1]);
+    }
+
+    @Test
+    public void testAdjacentUpdatesAreMerged() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(100, 100, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.fillRect(0, 0, 10, 10, 0x112233);
+        display.fillRect(10, 0, 10, 10, 0x112233);
+        display.setPixel(5, 5, 0x445566);
+        display.flush();
+
+        assertEquals(1, driver.getTransferCount());
+        assertEquals(200, driver.getTransferredPixelCount());
+    }
+
+    @Test
+    public void testPartialUpdateRotated() {
+        for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+            FakeGraphicsDisplayDriver partialDriver = new FakeGraphicsDisplayDriver(40, 20, PixelFormat.RGB_888);
+            GraphicsDisplay partial = new GraphicsDisplay(partialDriver, rotation);
+            partial.setTransferDelayMillis(-1);
+            partial.fillRect(0, 0, partial.getWidth(), partial.getHeight(), 0);
+            partial.flush();
+            partial.setPixel(3, 5, 0xffffff);
+            partial.flush();
+
+            FakeGraphicsDisplayDriver fullDriver = new FakeGraphicsDisplayDriver(40, 20, PixelFormat.RGB_888);
+            GraphicsDisplay full = new GraphicsDisplay(fullDriver, rotation);
+            full.setTransferDelayMillis(-1);
+            full.fillRect(0, 0, full.getWidth(), full.getHeight(), 0);
+            full.setPixel(3, 5, 0xffffff);
+            full.flush();
+
+            assertArrayEquals(fullDriver.getData(), partialDriver.getData(), rotation.name());
+        }
+    }
+
+    /** Checks the pixel mapping of rotated transfers spanning several rotation bands and partial tiles. */
+    @Test
+    public void testRotatedTransferMapping() {
+        for (GraphicsDisplay.BufferMode bufferMode : GraphicsDisplay.BufferMode.values()) {
+            for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+                FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(37, 45, PixelFormat.RGB_565);
+                GraphicsDisplay display = new GraphicsDisplay(driver, rotation, bufferMode);
+                display.setTransferDelayMillis(-1);
+                int width = display.getWidth();
+                int height = display.getHeight();
+                int[] pixels = new int[width * height];
+                for (int i = 0; i < pixels.length; i++) {
+                    pixels[i] = i * 0x010305;
+                }
+                display.drawImage(0, 0, width, height, pixels);
+                display.flush();
+
+                byte[] data = driver.getData();
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int pos = switch (rotation) {
+                            case ROTATE_0 -> y * 37 + x;
+                            case ROTATE_90 -> x * 37 + height - 1 - y;
+                            case ROTATE_180 -> (44 - y) * 37 + 36 - x;
+                            case ROTATE_270 -> (width - 1 - x) * 37 + y;
+                        } * 2;
+                        int expected = PixelFormat.RGB_565.fromRgb(pixels[y * width + x]);
+                        assertEquals(expected, ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff),
+                                bufferMode + " " + rotation + " " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Checks that hardware rotation by the driver transfers the same data as software rotation. */
+    @Test
+    public void testHardwareRotation() {
+        for (PixelFormat format : new PixelFormat[] { PixelFormat.RGB_565, PixelFormat.RGB_444 }) {
+            for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+                FakeGraphicsDisplayDriver softwareDriver = new FakeGraphicsDisplayDriver(40, 30, format);
+                FakeGraphicsDisplayDriver hardwareDriver = new FakeGraphicsDisplayDriver(40, 30, format);
+                hardwareDriver.setHardwareRotation(true);
+                GraphicsDisplay softwareDisplay = new GraphicsDisplay(softwareDriver, rotation);
+                GraphicsDisplay hardwareDisplay = new GraphicsDisplay(hardwareDriver, rotation);
+                assertEquals(rotation, hardwareDriver.getRotation());
+                assertEquals(softwareDisplay.getWidth(), hardwareDisplay.getWidth());
+                assertEquals(softwareDisplay.getHeight(), hardwareDisplay.getHeight());
+
+                for (GraphicsDisplay display : new GraphicsDisplay[] { softwareDisplay, hardwareDisplay }) {
+                    display.setTransferDelayMillis(-1);
+                    display.fillRect(0, 0, 40, 40, 0x102030);
+                    display.fillRect(3, 5, 17, 9, 0xff8040);
+                    display.setPixel(7, 21, 0xffffff);
+                    display.flush();
+                }
+                assertArrayEquals(softwareDriver.getData(), hardwareDriver.getData(), format + " " + rotation);
+            }
+        }
+    }
+
+    /** Checks that hardware scrolling shows the same content as scrolling in software, transferring less. */
+    @Test
+    public void testScroll() {
+        for (boolean contentDiff : new boolean[] { false, true }) {
+            FakeGraphicsDisplayDriver softwareDriver = new FakeGraphicsDisplayDriver(40, 30, PixelFormat.RGB_565);
+            FakeGraphicsDisplayDriver hardwareDriver = new FakeGraphicsDisplayDriver(40, 30, PixelFormat.RGB_565);
+            hardwareDriver.setHardwareScrolling(true);
+            GraphicsDisplay softwareDisplay = new GraphicsDisplay(softwareDriver);
+            GraphicsDisplay hardwareDisplay = new GraphicsDisplay(hardwareDriver);
+
+            for (GraphicsDisplay display : new GraphicsDisplay[] { softwareDisplay, hardwareDisplay }) {
+                display.setTransferDelayMillis(-1);
+                display.setContentDiff(contentDiff);
+                for (int y = 0; y < 30; y++) {
+                    display.fillRect(0, y, 40, 1, y * 0x050301);
+                }
+                display.flush();
+            }
+            long transferredBefore = hardwareDriver.getTransferredPixelCount();
+
+            for (GraphicsDisplay display : new GraphicsDisplay[] { softwareDisplay, hardwareDisplay }) {
+                display.scroll(2, 28, 3, 0xffffff);
+                display.setPixel(5, 26, 0x123456);
+                display.flush();
+            }
+            String message = "contentDiff " + contentDiff;
+            assertArrayEquals(softwareDriver.getData(), hardwareDriver.getData(), message);
+            assertEquals(1, hardwareDriver.getScrollCount(), message);
+            assertEquals(40 * 3, hardwareDriver.getTransferredPixelCount() - transferredBefore, message);
+
+            // The content moved up by 3 rows within the range, leaving the rows outside unchanged.
+            byte[] data = softwareDriver.getData();
+            assertEquals((byte) (PixelFormat.RGB_565.fromRgb(10 * 0x050301) >> 8), data[7 * 40 * 2], message);
+            assertEquals((byte) (PixelFormat.RGB_565.fromRgb(28 * 0x050301) >> 8), data[28 * 40 * 2], message);
+            assertEquals((byte) 0xff, data[27 * 40 * 2], message);
+
+            for (GraphicsDisplay display : new GraphicsDisplay[] { softwareDisplay, hardwareDisplay }) {
+                display.scroll(2, 28, -5, 0x00ff00);
+                display.flush();
+            }
+            assertArrayEquals(softwareDriver.getData(), hardwareDriver.getData(), message);
+
+            // Changing the range resets the hardware scroll position.
+            for (GraphicsDisplay display : new GraphicsDisplay[] { softwareDisplay, hardwareDisplay }) {
+                display.scroll(4, 1);
+                display.flush();
+            }
+            assertArrayEquals(softwareDriver.getData(), hardwareDriver.getData(), message);
+        }
+    }
+
+    /** Checks that streamed frames reach the driver as drawn images would, bypassing the display buffer. */
+    @Test
+    public void testStreamFrame() {
+        int[] frame = new int[20 * 10];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = i * 0x010203;
+        }
+        for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+            // A small transfer size makes the default streamFrame() implementation split the frame.
+            FakeGraphicsDisplayDriver streamDriver = new FakeGraphicsDisplayDriver(40, 30, PixelFormat.RGB_565, 200);
+            FakeGraphicsDisplayDriver drawDriver = new FakeGraphicsDisplayDriver(40, 30, PixelFormat.RGB_565, 200);
+            GraphicsDisplay streamDisplay = new GraphicsDisplay(streamDriver, rotation);
+            GraphicsDisplay drawDisplay = new GraphicsDisplay(drawDriver, rotation);
+            streamDisplay.setTransferDelayMillis(-1);
+            drawDisplay.setTransferDelayMillis(-1);
+
+            streamDisplay.streamFrame(4, 6, 20, 10, frame);
+            drawDisplay.drawImage(4, 6, 20, 10, frame);
+            drawDisplay.flush();
+            assertArrayEquals(drawDriver.getData(), streamDriver.getData(), rotation.name());
+        }
+
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(40, 30, PixelFormat.RGB_565);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        byte[] data = new byte[2 * 2 * 2];
+        Arrays.fill(data, (byte) 0x5a);
+        display.streamFrame(2, 3, 2, 2, data);
+        assertEquals(1, driver.getTransferCount());
+        assertEquals((byte) 0x5a, driver.getData()[(3 * 40 + 2) * 2]);
+        // The display buffer is not affected.
+        display.edit(canvas -> assertEquals(0, canvas.getPixel(2, 3)));
+    }
+
+    /** Invalid frames are rejected by the calling thread, also in queued rendering mode. */
+    @Test
+    public void testStreamFrameValidation() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(40, 30, PixelFormat.RGB_565);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        GraphicsDisplay rotatedDisplay = new GraphicsDisplay(driver, GraphicsDisplay.Rotation.ROTATE_90);
+        for (boolean queued : new boolean[] { false, true }) {
+            display.setQueuedRendering(queued);
+            rotatedDisplay.setQueuedRendering(queued);
+            assertThrows(IllegalArgumentException.class, () -> display.streamFrame(0, 0, 4, 4, new int[15]));
+            assertThrows(IllegalArgumentException.class, () -> display.streamFrame(38, 0, 4, 4, new int[16]));
+            assertThrows(IllegalArgumentException.class, () -> display.streamFrame(0, 0, 4, 4, new byte[31]));
+            assertThrows(IllegalArgumentException.class,
+                    () -> rotatedDisplay.streamFrame(28, 0, 4, 4, new int[16]));
+            assertThrows(UnsupportedOperationException.class,
+                    () -> rotatedDisplay.streamFrame(0, 0, 4, 4, new byte[32]));
+        }
+        // Nothing was queued, so no failure is reported later on.
+        display.close();
+        rotatedDisplay.close();
+        assertEquals(0, driver.getTransferCount());
+    }
+
+    @Test
+    public void testTileMode() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(100, 100, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setTileSize(16);
+
+        // Two elements in the same tile row, one spanning two tile rows and one at the clipped bottom right.
+        display.fillRect(1, 1, 4, 4, 0x112233);
+        display.fillRect(20, 2, 4, 4, 0x112233);
+        display.fillRect(20, 20, 4, 4, 0x112233);
+        display.setPixel(99, 99, 0x445566);
+        display.flush();
+
+        // The run of tiles (0, 0) - (1, 0), tile (1, 1) and the clipped 4x4 corner tile (6, 6)
+        assertEquals(3, driver.getTransferCount());
+        assertEquals(3 * 16 * 16 + 4 * 4, driver.getTransferredPixelCount());
+
+        byte[] data = driver.getData();
+        int pos = (99 * 100 + 99) * 3;
+        assertEquals(0x44, data[pos]);
+        assertEquals(0x55, data[pos + 1]);
+        assertEquals(0x66, data[pos + 2]);
+    }
+
+    /** The buffer content before enabling content diffing hasn't been transferred, so it must not be skipped. */
+    @Test
+    public void testContentDiffInitialTransfer() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(30, 30, PixelFormat.RGB_888);
+        // Simulates uninitialized panel memory.
+        Arrays.fill(driver.getData(), (byte) 0x7f);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setContentDiff(true);
+
+        display.fillRect(0, 0, 30, 30, 0);
+        display.flush();
+        assertArrayEquals(new byte[30 * 30 * 3], driver.getData());
+
+        // Afterwards, unchanged content is skipped.
+        long transferred = driver.getTransferredPixelCount();
+        display.fillRect(0, 0, 30, 30, 0);
+        display.flush();
+        assertEquals(transferred, driver.getTransferredPixelCount());
+    }
+
+    @Test
+    public void testContentDiff() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(30, 30, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setContentDiff(true);
+
+        display.fillRect(0, 0, 30, 30, 0x112233);
+        display.flush();
+        assertEquals(30 * 30, driver.getTransferredPixelCount());
+
+        // Redrawing the same content must not result in a transfer.
+        display.fillRect(0, 0, 50, 50, 0x112233);
+        display.flush();
+        assertEquals(1, driver.getTransferCount());
+
+        // Only the changed span is transferred.
+        display.fillRect(0, 0, 30, 30, 0x112233);
+        display.fillRect(10, 20, 5, 2, 0x445566);
+        display.setPixel(12, 22, 0x445566);
+        display.flush();
+        assertEquals(2, driver.getTransferCount());
+        assertEquals(30 * 30 + 5 * 3, driver.getTransferredPixelCount());
+
+        byte[] data = driver.getData();
+        int pos = (22 * 30 + 12) * 3;
+        assertEquals(0x44, data[pos]);
+        assertEquals(0x55, data[pos + 1]);
+        assertEquals(0x66, data[pos + 2]);
+    }
+
+    @Test
+    public void testDoubleBuffered() throws InterruptedException {
+        CountDownLatch transferStarted = new CountDownLatch(1);
+        CountDownLatch releaseTransfer = new CountDownLatch(1);
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void setPixels(int x, int y, int width, int height, byte[] data) {
+                transferStarted.countDown();
+                try {
+                    releaseTransfer.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.setPixels(x, y, width, height, data);
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setDoubleBuffered(true);
+
+        display.fillRect(0, 0, 20, 20, 0x112233);
+        display.flush();
+        assertTrue(transferStarted.await(5, TimeUnit.SECONDS));
+
+        // Drawing must not block while the transfer is in progress, and must not affect the pending transfer.
+        display.fillRect(0, 0, 20, 20, 0x445566);
+        assertEquals(0, driver.getTransferCount());
+
+        releaseTransfer.countDown();
+        display.close();
+
+        assertEquals(2, driver.getTransferCount());
+        byte[] data = driver.getData();
+        assertEquals(0x44, data[0]);
+        assertEquals(0x55, data[1]);
+        assertEquals(0x66, data[2]);
+    }
+
+    @Test
+    public void testStartFrame() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+
+        display.fillRect(0, 0, 2, 2, 0x112233);
+        display.fillRect(10, 10, 2, 2, 0x445566);
+        display.flush();
+        assertEquals(1, driver.getFrameCount());
+        assertEquals(2, driver.getTransferCount());
+
+        // Nothing to transfer, so no frame is started.
+        display.flush();
+        assertEquals(1, driver.getFrameCount());
+    }
+
+    /** Simulates a driver waiting for tearing effect pulses, which shouldn't block drawing when double buffered. */
+    @Test
+    public void testStartFrameDoubleBuffered() {
+        Semaphore tePulses = new Semaphore(0);
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void startFrame() {
+                tePulses.acquireUninterruptibly();
+                super.startFrame();
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setDoubleBuffered(true);
+
+        display.fillRect(0, 0, 20, 20, 0x112233);
+        display.flush();
+        display.fillRect(0, 0, 20, 20, 0x445566);
+        assertEquals(0, driver.getTransferCount());
+
+        tePulses.release(2);
+        display.close();
+
+        assertEquals(2, driver.getFrameCount());
+        assertEquals(2, driver.getTransferCount());
+        assertEquals(0x44, driver.getData()[0]);
+    }
+
+    /** A flush waiting for the previous transfer must not block drawing in other threads. */
+    @Test
+    public void testDoubleBufferedFlushWait() throws InterruptedException {
+        CountDownLatch transferStarted = new CountDownLatch(1);
+        CountDownLatch releaseTransfer = new CountDownLatch(1);
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void setPixels(int x, int y, int width, int height, byte[] data) {
+                transferStarted.countDown();
+                try {
+                    releaseTransfer.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.setPixels(x, y, width, height, data);
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setDoubleBuffered(true);
+
+        display.fillRect(0, 0, 20, 20, 0x112233);
+        display.flush();
+        assertTrue(transferStarted.await(5, TimeUnit.SECONDS));
+
+        display.fillRect(0, 0, 10, 10, 0x445566);
+        Thread flusher = new Thread(display::flush);
+        flusher.start();
+        while (flusher.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> display.fillRect(10, 10, 10, 10, 0x778899));
+
+        releaseTransfer.countDown();
+        flusher.join();
+        display.close();
+        byte[] data = driver.getData();
+        assertEquals(0x44, data[0]);
+        assertEquals(0x77, data[(19 * 20 + 19) * 3]);
+    }
+
+    /** Without double buffering, waiting for the start of a frame must not block other drawing threads either. */
+    @Test
+    public void testFrameStartWait() throws InterruptedException {
+        CountDownLatch frameStartWaiting = new CountDownLatch(1);
+        CountDownLatch frameStart = new CountDownLatch(1);
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void startFrame() {
+                frameStartWaiting.countDown();
+                try {
+                    frameStart.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.startFrame();
+            }
+
+            @Override
+            public boolean synchronizesFrames() {
+                return true;
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+
+        display.fillRect(0, 0, 10, 10, 0x112233);
+        Thread flusher = new Thread(display::flush);
+        flusher.start();
+        assertTrue(frameStartWaiting.await(5, TimeUnit.SECONDS));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> display.fillRect(10, 10, 10, 10, 0x445566));
+
+        frameStart.countDown();
+        flusher.join();
+        assertEquals(1, driver.getFrameCount());
+        byte[] data = driver.getData();
+        assertEquals(0x11, data[0]);
+        assertEquals(0x44, data[(19 * 20 + 19) * 3]);
+    }
+
+    /**
+     * Modifications flushed implicitly while drawing (with a transfer delay of 0) wait for the start of the frame
+     * with the lock released, so other threads can keep drawing.
+     */
+    @Test
+    public void testFrameStartWaitWhileLocked() throws InterruptedException {
+        CountDownLatch frameStartWaiting = new CountDownLatch(1);
+        CountDownLatch frameStart = new CountDownLatch(1);
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void startFrame() {
+                frameStartWaiting.countDown();
+                try {
+                    frameStart.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.startFrame();
+            }
+
+            @Override
+            public boolean synchronizesFrames() {
+                return true;
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(0);
+
+        Thread drawer = new Thread(() -> display.fillRect(0, 0, 10, 10, 0x112233));
+        drawer.start();
+        assertTrue(frameStartWaiting.await(5, TimeUnit.SECONDS));
+        // Without implicit flushes, drawing doesn't wait for a frame start itself.
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            display.setTransferDelayMillis(-1);
+            display.fillRect(10, 10, 10, 10, 0x445566);
+        });
+
+        // The waiting flush transfers both modifications in one frame.
+        frameStart.countDown();
+        drawer.join();
+        assertEquals(1, driver.getFrameCount());
+        byte[] data = driver.getData();
+        assertEquals(0x11, data[0]);
+        assertEquals(0x44, data[(19 * 20 + 19) * 3]);
+    }
+
+    /** A streamed frame waits for its own frame start after pending modifications have been transferred. */
+    @Test
+    public void testStreamFrameStart() {
+        StringBuilder events = new StringBuilder();
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void startFrame() {
+                events.append('F');
+                super.startFrame();
+            }
+
+            @Override
+            public void setPixels(int x, int y, int width, int height, byte[] data) {
+                events.append('T');
+                super.setPixels(x, y, width, height, data);
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+
+        display.fillRect(0, 0, 2, 2, 0x112233);
+        display.streamFrame(0, 10, 20, 2, new int[40]);
+        assertEquals("FTFT", events.toString());
+
+        events.setLength(0);
+        display.streamFrame(0, 10, 20, 2, new byte[120]);
+        assertEquals("FT", events.toString());
+    }
+
+    @Test
+    public void testFrameRate() throws InterruptedException {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setFrameRate(10);
+
+        // All modifications within a frame period should be coalesced into a single transfer.
+        for (int i = 0; i < 20; i++) {
+            display.fillRect(i, i, 1, 1, 0x112233);
+        }
+        Thread.sleep(250);
+        display.setFrameRate(0);
+
+        assertTrue(driver.getTransferCount() >= 1);
+        assertTrue(driver.getTransferCount() <= 2);
+        byte[] data = driver.getData();
+        int pos = (19 * 20 + 19) * 3;
+        assertEquals(0x11, data[pos]);
+        assertEquals(0x22, data[pos + 1]);
+        assertEquals(0x33, data[pos + 2]);
+
+        display.close();
+    }
+
+    @Test
+    public void testMaxTransferSize() {
+        FakeGraphicsDisplayDriver unlimitedDriver = new FakeGraphicsDisplayDriver(240, 320, PixelFormat.RGB_565);
+        GraphicsDisplay unlimited = new GraphicsDisplay(unlimitedDriver);
+        unlimited.setTransferDelayMillis(-1);
+        unlimited.fillRect(0, 0, 240, 320, 0x112233);
+        unlimited.flush();
+        assertEquals(1, unlimitedDriver.getTransferCount());
+
+        // 4096 bytes fit 8 rows of 240 RGB_565 pixels.
+        FakeGraphicsDisplayDriver limitedDriver = new FakeGraphicsDisplayDriver(240, 320, PixelFormat.RGB_565, 4096);
+        GraphicsDisplay limited = new GraphicsDisplay(limitedDriver);
+        limited.setTransferDelayMillis(-1);
+        limited.fillRect(0, 0, 240, 320, 0x112233);
+        limited.flush();
+        assertEquals(40, limitedDriver.getTransferCount());
+        assertArrayEquals(unlimitedDriver.getData(), limitedDriver.getData());
+    }
+
+    @Test
+    public void testQueuedRendering() throws InterruptedException {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(40, 40, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setQueuedRendering(true);
+
+        // Each producer thread draws its own row, pixel by pixel.
+        Thread[] producers = new Thread[8];
+        for (int i = 0; i < producers.length; i++) {
+            int row = i;
+            producers[i] = new Thread(() -> {
+                for (int x = 0; x < 40; x++) {
+                    display.setPixel(x, row, 0x010203 * (row + 1));
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        BitmapFont font = BitmapFont.get5x8Font();
+        assertEquals("Pi4J".length() * 6, display.renderText(0, 30, "Pi4J", font, 0xffffff));
+        display.close();
+
+        byte[] data = driver.getData();
+        for (int row = 0; row < producers.length; row++) {
+            int pos = (row * 40 + 39) * 3;
+            assertEquals(row + 1, data[pos]);
+            assertEquals(2 * (row + 1), data[pos + 1]);
+            assertEquals(3 * (row + 1), data[pos + 2]);
+        }
+    }
+
+    /** Reconfiguring the modification tracking in queued mode must not drop queued drawing operations. */
+    @Test
+    public void testQueuedReconfiguration() {
+        for (int i = 0; i < 2; i++) {
+            FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888);
+            GraphicsDisplay display = new GraphicsDisplay(driver);
+            display.setTransferDelayMillis(-1);
+            display.setQueuedRendering(true);
+
+            display.fillRect(0, 0, 20, 20, 0x112233);
+            if (i == 0) {
+                display.setTileSize(8);
+            } else {
+                display.setContentDiff(true);
+            }
+            display.close();
+
+            byte[] data = driver.getData();
+            assertEquals(0x11, data[0], "i = " + i);
+            assertEquals(0x33, data[data.length - 1], "i = " + i);
+        }
+    }
+
+    /** A failed queued operation is reported once; later operations are applied again. */
+    @Test
+    public void testQueuedRenderingFailure() throws InterruptedException {
+        CountDownLatch releaseFailure = new CountDownLatch(1);
+        CountDownLatch retried = new CountDownLatch(1);
+        AtomicInteger transferCount = new AtomicInteger();
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void setPixels(int x, int y, int width, int height, byte[] data) {
+                if (transferCount.incrementAndGet() == 1) {
+                    try {
+                        releaseFailure.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    throw new IllegalArgumentException("Transfer failed");
+                }
+                super.setPixels(x, y, width, height, data);
+                retried.countDown();
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setQueuedRendering(true);
+
+        // The first flush fails on the render thread; the second one is already queued and transfers the pixels.
+        display.setPixel(0, 0, 0x112233);
+        display.flush();
+        display.flush();
+        releaseFailure.countDown();
+        assertTrue(retried.await(5, TimeUnit.SECONDS));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> display.setPixel(0, 0, 0x445566));
+        assertEquals("Transfer failed", e.getCause().getMessage());
+        display.setPixel(0, 0, 0x010203);
+        display.close();
+        assertEquals(0x01, driver.getData()[0]);
+    }
+
+    /** A failure of the last queued operation is reported when queued rendering is disabled, e.g. by close(). */
+    @Test
+    public void testQueuedRenderingFailureOnClose() {
+        AtomicInteger transferCount = new AtomicInteger();
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(20, 20, PixelFormat.RGB_888) {
+            @Override
+            public void setPixels(int x, int y, int width, int height, byte[] data) {
+                if (transferCount.incrementAndGet() == 1) {
+                    throw new IllegalArgumentException("Transfer failed");
+                }
+                super.setPixels(x, y, width, height, data);
+            }
+        };
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.setQueuedRendering(true);
+
+        display.setPixel(0, 0, 0x112233);
+        display.flush();
+        IllegalStateException e = assertThrows(IllegalStateException.class, display::close);
+        assertEquals("Transfer failed", e.getCause().getMessage());
+
+        // close() still transfers the remaining modifications.
+        assertEquals(0x11, driver.getData()[0]);
+    }
+
+    @Test
+    public void testEdit() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(100, 100, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(0);
+
+        display.edit(canvas -> {
+            for (int x = 10; x < 90; x++) {
+                canvas.setPixel(x, 20 + x / 2, 0x112233);
+            }
+            canvas.setPixel(-1, 200, 0xffffff);
+        });
+
+        // A single transfer of the bounding box of all modified pixels
+        assertEquals(1, driver.getTransferCount());
+        assertEquals(80 * 40, driver.getTransferredPixelCount());
+
+        byte[] data = driver.getData();
+        int pos = (64 * 100 + 89) * 3;
+        assertEquals(0x11, data[pos]);
+        assertEquals(0x22, data[pos + 1]);
+        assertEquals(0x33, data[pos + 2]);
+
+        display.edit(canvas -> assertEquals(0x112233, canvas.getPixel(10, 25)));
+        assertEquals(1, driver.getTransferCount());
+    }
+
+    @Test
+    public void testDrawImageAlpha() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(10, 10, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(0);
+        display.fillRect(0, 0, 10, 10, 0x0000ff);
+
+        display.drawImage(0, 0, 2, 1, new int[] {0xff0000, 0xffffff}, 128);
+        display.drawImageArgb(2, 0, 3, 1, new int[] {0x00ff0000, 0xffff0000, 0x40ffffff});
+
+        byte[] data = driver.getData();
+        assertArrayEquals(new byte[] {
+                (byte) 0x80, 0x00, 0x7f,
+                (byte) 0x80, (byte) 0x80, (byte) 0xff,
+                0x00, 0x00, (byte) 0xff,
+                (byte) 0xff, 0x00, 0x00,
+                0x40, 0x40, (byte) 0xff,
+        }, Arrays.copyOf(data, 15));
+    }
+
+    /** Checks that the native buffer mode transfers the same data as the RGB mode. */
+    @Test
+    public void testNativeBufferMode() {
+        for (PixelFormat format : PixelFormat.values()) {
+            for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+                FakeGraphicsDisplayDriver rgbDriver = new FakeGraphicsDisplayDriver(40, 30, format);
+                FakeGraphicsDisplayDriver nativeDriver = new FakeGraphicsDisplayDriver(40, 30, format);
+                GraphicsDisplay rgbDisplay = new GraphicsDisplay(rgbDriver, rotation);
+                GraphicsDisplay nativeDisplay =
+                        new GraphicsDisplay(nativeDriver, rotation, GraphicsDisplay.BufferMode.NATIVE);
+                nativeDisplay.setContentDiff(true);
+
+                for (GraphicsDisplay display : new GraphicsDisplay[] { rgbDisplay, nativeDisplay }) {
+                    display.setTransferDelayMillis(-1);
+                    display.fillRect(0, 0, 40, 40, 0x102030);
+                    display.flush();
+                    display.fillRect(3, 5, 17, 9, 0xff8040);
+                    display.drawImage(10, 2, 2, 2, new int[] {0x123456, 0x789abc, 0xdef012, 0x345678});
+                    display.drawLine(0, 29, 29, 0, 0x00ff00);
+                    display.setPixel(7, 21, 0xffffff);
+                    display.flush();
+                }
+                assertArrayEquals(rgbDriver.getData(), nativeDriver.getData(), format + " " + rotation);
+            }
+        }
+
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(10, 10, PixelFormat.RGB_565);
+        GraphicsDisplay display = new GraphicsDisplay(driver, GraphicsDisplay.BufferMode.NATIVE);
+        display.setPixel(1, 1, 0x123456);
+        // Reading back reflects the reduced color depth.
+        display.edit(canvas -> assertEquals(0x103452, canvas.getPixel(1, 1)));
+    }
+
+    /** Checks that the off-heap transfer buffer transfers the same data as the heap buffer. */
+    @Test
+    public void testOffHeapTransfer() {
+        for (PixelFormat format : PixelFormat.values()) {
+            for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+                FakeGraphicsDisplayDriver heapDriver = new FakeGraphicsDisplayDriver(40, 30, format, 130);
+                FakeGraphicsDisplayDriver offHeapDriver = new FakeGraphicsDisplayDriver(40, 30, format, 130);
+                GraphicsDisplay heapDisplay = new GraphicsDisplay(heapDriver, rotation);
+                GraphicsDisplay offHeapDisplay = new GraphicsDisplay(offHeapDriver, rotation);
+                offHeapDisplay.setOffHeapTransfer(true);
+
+                for (GraphicsDisplay display : new GraphicsDisplay[] { heapDisplay, offHeapDisplay }) {
+                    display.setTransferDelayMillis(-1);
+                    display.fillRect(0, 0, 40, 40, 0x102030);
+                    display.drawLine(0, 29, 29, 0, 0x00ff00);
+                    display.setPixel(7, 21, 0xffffff);
+                    display.close();
+                }
+                assertArrayEquals(heapDriver.getData(), offHeapDriver.getData(), format + " " + rotation);
+                assertEquals(0, heapDriver.getSegmentTransferCount());
+                assertEquals(offHeapDriver.getTransferCount(), offHeapDriver.getSegmentTransferCount());
+                assertTrue(offHeapDriver.getTransferCount() > 1);
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedFormat() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(16, 2, PixelFormat.INDEXED_1);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(-1);
+        display.fillRect(0, 0, 4, 2, 0xffffff);
+        display.fillRect(12, 0, 4, 1, 0xffff00);
+        display.flush();
+        assertArrayEquals(new byte[] {(byte) 0xf0, 0x0f, (byte) 0xf0, 0x00}, driver.getData());
+    }
+
+    @Test
+    public void testDithering() {
+        for (GraphicsDisplay.Dithering dithering : new GraphicsDisplay.Dithering[] {
+                GraphicsDisplay.Dithering.ORDERED, GraphicsDisplay.Dithering.FLOYD_STEINBERG}) {
+            FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(32, 32, PixelFormat.INDEXED_1);
+            GraphicsDisplay display = new GraphicsDisplay(driver);
+            display.setTransferDelayMillis(-1);
+            display.setDithering(dithering);
+            // A quarter gray should set about a quarter of the bits.
+            display.fillRect(0, 0, 32, 32, 0x404040);
+            display.flush();
+            int bitCount = 0;
+            for (byte b : driver.getData()) {
+                bitCount += Integer.bitCount(b & 0xff);
+            }
+            assertTrue(Math.abs(bitCount - 32 * 32 / 4) < 32, dithering + ": " + bitCount);
+        }
+
+        // Without dithering, the gray maps to black.
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(32, 32, PixelFormat.INDEXED_1);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setTransferDelayMillis(0);
+        display.fillRect(0, 0, 32, 32, 0x404040);
+        assertArrayEquals(new byte[32 * 32 / 8], driver.getData());
+    }
+
+    @Test
+    public void testColorCorrection() {
+        FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(10, 10, PixelFormat.RGB_888);
+        GraphicsDisplay display = new GraphicsDisplay(driver);
+        display.setContentDiff(true);
+        display.setTransferDelayMillis(0);
+        display.setPixel(1, 0, 0x804020);
+        assertArrayEquals(new byte[] {0, 0, 0, (byte) 0x80, 0x40, 0x20}, Arrays.copyOf(driver.getData(), 6));
+
+        // Changing the correction re-transfers the screen, even with content diffing.
+        display.setColorCorrection(new ColorCorrection(1, 128));
+        assertArrayEquals(new byte[] {0, 0, 0, 0x40, 0x20, 0x10}, Arrays.copyOf(driver.getData(), 6));
+
+        display.setPixel(0, 0, 0xffffff);
+        assertArrayEquals(new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, 0x40, 0x20, 0x10},
+                Arrays.copyOf(driver.getData(), 6));
+    }
 }
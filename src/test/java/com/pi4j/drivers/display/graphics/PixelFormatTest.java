@@ -1,6 +1,12 @@
 package com.pi4j.drivers.display.graphics;
 
 import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class PixelFormatTest {
@@ -117,4 +123,184 @@ public class PixelFormatTest {
         assertEquals((byte) 0b11111_000, target[2]);
         assertEquals((byte) 0b000_11111, target[3]);
     }
+
+    @Test
+    public void testWriteRgbArray565Le() {
+        byte[] target = new byte[4];
+
+        int offset = PixelFormat.RGB_565_LE.writeRgb(new int[] { 0x0ff00ff, 0x0f0f0f0 }, 0, target, 0, 2);
+
+        assertEquals(32, offset);
+        assertEquals((byte) 0b000_11111, target[0]);
+        assertEquals((byte) 0b11111_000, target[1]);
+
+        assertEquals((byte) 0b100_11110, target[2]);
+        assertEquals((byte) 0b11110_111, target[3]);
+    }
+
+    @Test
+    public void testWriteRgbArray888WithStride() {
+        byte[] target = new byte[6];
+
+        int offset = PixelFormat.RGB_888.writeRgb(new int[] { 0x112233, 0, 0x445566 }, 2, -2, target, 0, 2);
+
+        assertEquals(48, offset);
+        assertArrayEquals(new byte[] { 0x44, 0x55, 0x66, 0x11, 0x22, 0x33 }, target);
+    }
+
+    @Test
+    public void testWriteRgbArray444OddCount() {
+        byte[] target = new byte[] { 0, 0, 0, 0, 0x0f };
+
+        int offset = PixelFormat.RGB_444.writeRgb(new int[] { 0x0aabbcc, 0x0112233, 0x0ddeeff }, 0, target, 0, 3);
+
+        assertEquals(36, offset);
+        assertArrayEquals(new byte[] { (byte) 0xab, (byte) 0xc1, 0x23, (byte) 0xde, (byte) 0xff }, target);
+    }
+
+    /**
+     * Compares the bulk conversion and fill kernels against the generic single pixel conversion, with and without
+     * the vector kernels.
+     */
+    @Test
+    public void testBulkKernelsMatchSinglePixelConversion() {
+        checkBulkKernelsMatchSinglePixelConversion();
+        boolean vectorKernelsEnabled = PixelFormat.setVectorKernelsEnabled(false);
+        try {
+            checkBulkKernelsMatchSinglePixelConversion();
+        } finally {
+            PixelFormat.setVectorKernelsEnabled(vectorKernelsEnabled);
+        }
+    }
+
+    private void checkBulkKernelsMatchSinglePixelConversion() {
+        Random random = new Random(0);
+        for (PixelFormat format : PixelFormat.values()) {
+            for (int bitOffset : new int[] { 0, 4, 8, 12 }) {
+                int[] src = new int[17];
+                for (int i = 0; i < src.length; i++) {
+                    src[i] = random.nextInt(0x1000000);
+                }
+                byte[] expected = new byte[64];
+                byte[] actual = new byte[64];
+                random.nextBytes(expected);
+                System.arraycopy(expected, 0, actual, 0, expected.length);
+
+                int expectedBits = 0;
+                for (int rgb : src) {
+                    expectedBits += format.writeRgb(rgb, expected, bitOffset + expectedBits);
+                }
+                int actualBits = format.writeRgb(src, 0, actual, bitOffset, src.length);
+                assertEquals(expectedBits, actualBits);
+                assertArrayEquals(expected, actual, format + " at bit offset " + bitOffset);
+
+                expectedBits = 0;
+                for (int i = 0; i < src.length; i++) {
+                    expectedBits += format.writeRgb(src[3], expected, bitOffset + expectedBits);
+                }
+                actualBits = format.fillRgb(actual, bitOffset, src.length, src[3]);
+                assertEquals(expectedBits, actualBits);
+                assertArrayEquals(expected, actual, format + " fill at bit offset " + bitOffset);
+            }
+        }
+    }
+
+    @Test
+    public void testToRgb() {
+        assertEquals(0xaabbcc, PixelFormat.RGB_444.toRgb(0xabc));
+        assertEquals(0xffffff, PixelFormat.RGB_565.toRgb(0xffff));
+        assertEquals(0x84, PixelFormat.RGB_565.toRgb(0b00000_000000_10000));
+        assertEquals(0x112233, PixelFormat.RGB_888.toRgb(0x112233));
+    }
+
+    /** Checks that writing values converted with fromRgb() matches writing the RGB values directly. */
+    @Test
+    public void testWriteNativeMatchesWriteRgb() {
+        Random random = new Random(0);
+        for (PixelFormat format : new PixelFormat[] { PixelFormat.RGB_444, PixelFormat.RGB_565, PixelFormat.RGB_565_LE }) {
+            for (int bitOffset : new int[] { 0, 4, 8, 12 }) {
+                int[] src = new int[17];
+                short[] nativeSrc = new short[src.length];
+                for (int i = 0; i < src.length; i++) {
+                    src[i] = random.nextInt(0x1000000);
+                    nativeSrc[i] = (short) format.fromRgb(src[i]);
+                }
+                byte[] expected = new byte[64];
+                byte[] actual = new byte[64];
+                random.nextBytes(expected);
+                System.arraycopy(expected, 0, actual, 0, expected.length);
+
+                int expectedBits = format.writeRgb(src, src.length - 1, -1, expected, bitOffset, src.length);
+                int actualBits = format.writeNative(nativeSrc, src.length - 1, -1, actual, bitOffset, src.length);
+                assertEquals(expectedBits, actualBits);
+                assertArrayEquals(expected, actual, format + " at bit offset " + bitOffset);
+            }
+        }
+    }
+
+    /** Compares the memory segment kernels against the byte array kernels, with and without the vector kernels. */
+    @Test
+    public void testWriteToMemorySegment() {
+        checkWriteToMemorySegment();
+        boolean vectorKernelsEnabled = PixelFormat.setVectorKernelsEnabled(false);
+        try {
+            checkWriteToMemorySegment();
+        } finally {
+            PixelFormat.setVectorKernelsEnabled(vectorKernelsEnabled);
+        }
+    }
+
+    private void checkWriteToMemorySegment() {
+        Random random = new Random(0);
+        for (PixelFormat format : PixelFormat.values()) {
+            int[] src = new int[24];
+            short[] nativeSrc = new short[src.length];
+            for (int i = 0; i < src.length; i++) {
+                src[i] = random.nextInt(0x1000000);
+                nativeSrc[i] = (short) format.fromRgb(src[i]);
+            }
+            byte[] expected = new byte[96];
+            format.writeRgb(src, 0, 1, expected, 8, src.length);
+
+            MemorySegment actual = MemorySegment.ofArray(new byte[96]);
+            long byteCount = format.writeRgb(src, 0, 1, actual, 1, src.length);
+            assertEquals(src.length * format.getBitCount() / 8, byteCount);
+            assertArrayEquals(expected, actual.toArray(ValueLayout.JAVA_BYTE), format.toString());
+
+            if (format.getBitCount() <= 16 && !format.isIndexed()) {
+                actual = MemorySegment.ofArray(new byte[96]);
+                format.writeNative(nativeSrc, 0, 1, actual, 1, src.length);
+                assertArrayEquals(expected, actual.toArray(ValueLayout.JAVA_BYTE), format + " native");
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedFormats() {
+        assertEquals(1, PixelFormat.INDEXED_1.getBitCount());
+        assertEquals(0, PixelFormat.INDEXED_1.fromRgb(0x404040));
+        assertEquals(1, PixelFormat.INDEXED_1.fromRgb(0xc0c0c0));
+        assertEquals(2, PixelFormat.INDEXED_2.fromRgb(0xaaaaaa));
+        assertEquals(0x555555, PixelFormat.INDEXED_2.toRgb(1));
+
+        // All 256 gray levels are distinguished by the 8 bit palette.
+        for (int level = 0; level < 256; level++) {
+            assertEquals(level, PixelFormat.INDEXED_8.fromRgb(level * 0x010101));
+        }
+        assertEquals(0x80, PixelFormat.INDEXED_8.fromRgb(0x7f8081));
+
+        byte[] target = new byte[2];
+        PixelFormat.INDEXED_1.writeRgb(
+                new int[] { 0xffffff, 0, 0xffffff, 0xffffff, 0, 0, 0, 0xffffff, 0xffffff }, 0, target, 0, 9);
+        assertArrayEquals(new byte[] { (byte) 0b10110001, (byte) 0b10000000 }, target);
+    }
+
+    @Test
+    public void testPaletteNearestColor() {
+        Palette palette = new Palette(0x000000, 0xff0000, 0x00ff00, 0x0000ff);
+        assertEquals(1, palette.indexOf(0xe01010));
+        assertEquals(2, palette.indexOf(0x20c020));
+        assertEquals(3, palette.indexOf(0x1010a0));
+        assertEquals(0, palette.indexOf(0x202020));
+    }
 }
@@ -0,0 +1,134 @@
+package com.pi4j.drivers.display.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RasterizerTest {
+
+    private static final int COLOR = 0xffffff;
+
+    private final FakeGraphicsDisplayDriver driver = new FakeGraphicsDisplayDriver(100, 100, PixelFormat.RGB_888);
+    private final GraphicsDisplay display = new GraphicsDisplay(driver);
+
+    @Test
+    public void testDrawLine() {
+        display.drawLine(10, 10, 20, 20, COLOR);
+        for (int i = 10; i <= 20; i++) {
+            assertEquals(COLOR, getPixel(i, i));
+        }
+        assertEquals(11, countPixels());
+
+        display.drawLine(-50, 50, 150, 50, COLOR);
+        assertEquals(11 + 100, countPixels());
+    }
+
+    @Test
+    public void testDrawLineClipping() {
+        // Only the visible part is walked, so this returns immediately.
+        display.drawLine(-1_000_000_000, -1_000_000_000, 1_000_000_000, 1_000_000_000, COLOR);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(COLOR, getPixel(i, i));
+        }
+        assertEquals(100, countPixels());
+
+        // Extreme coordinates must not overflow.
+        display.drawLine(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, COLOR);
+        display.drawLine(Integer.MIN_VALUE, 50, Integer.MAX_VALUE, 50, COLOR);
+        assertEquals(100 + 99, countPixels());
+
+        // Lines passing the display are ignored.
+        display.drawLine(-10, 5, 5, -10, COLOR);
+        assertEquals(100 + 99, countPixels());
+    }
+
+    @Test
+    public void testFillCircle() {
+        display.setTransferDelayMillis(0);
+        display.fillCircle(50, 50, 10, COLOR);
+
+        assertEquals(COLOR, getPixel(50, 50));
+        assertEquals(COLOR, getPixel(60, 50));
+        assertEquals(COLOR, getPixel(50, 40));
+        assertEquals(0, getPixel(61, 50));
+        assertEquals(0, getPixel(58, 58));
+        int count = countPixels();
+        assertTrue(Math.abs(count - Math.PI * 10.5 * 10.5) < 20, "Unexpected pixel count " + count);
+
+        // A single transfer of the bounding box
+        assertEquals(1, driver.getTransferCount());
+        assertEquals(21 * 21, driver.getTransferredPixelCount());
+    }
+
+    @Test
+    public void testDrawArc() {
+        display.drawCircle(50, 50, 20, 0x010101);
+        int circlePixels = countPixels();
+        display.fillRect(0, 0, 100, 100, 0);
+
+        display.drawArc(50, 50, 20, 0, 90, COLOR);
+        // The top right quadrant only
+        assertEquals(COLOR, getPixel(70, 50));
+        assertEquals(COLOR, getPixel(50, 30));
+        assertEquals(0, getPixel(30, 50));
+        assertEquals(0, getPixel(50, 70));
+        assertTrue(Math.abs(countPixels() - circlePixels / 4) <= 2);
+    }
+
+    @Test
+    public void testFillPolygon() {
+        display.fillPolygon(new int[] {10, 20, 20, 10}, new int[] {10, 10, 20, 20}, 4, COLOR);
+        assertEquals(100, countPixels());
+        assertEquals(COLOR, getPixel(10, 10));
+        assertEquals(COLOR, getPixel(19, 19));
+        assertEquals(0, getPixel(20, 20));
+
+        display.fillRect(0, 0, 100, 100, 0);
+        // A triangle clipped at the top of the display
+        display.fillPolygon(new int[] {50, 90, 10}, new int[] {-40, 40, 40}, 3, COLOR);
+        assertEquals(COLOR, getPixel(50, 0));
+        assertEquals(COLOR, getPixel(11, 39));
+        assertEquals(0, getPixel(50, 40));
+        assertEquals(0, getPixel(12, 30));
+    }
+
+    @Test
+    public void testRoundRect() {
+        display.fillRoundRect(10, 10, 30, 20, 5, COLOR);
+        assertEquals(0, getPixel(10, 10));
+        assertEquals(0, getPixel(39, 29));
+        assertEquals(COLOR, getPixel(15, 10));
+        assertEquals(COLOR, getPixel(10, 15));
+        assertEquals(COLOR, getPixel(25, 20));
+        int filled = countPixels();
+        assertTrue(filled < 30 * 20 && filled > 30 * 20 - 4 * 25);
+
+        display.fillRect(0, 0, 100, 100, 0);
+        display.drawRoundRect(10, 10, 30, 20, 5, COLOR);
+        assertEquals(0, getPixel(10, 10));
+        assertEquals(0, getPixel(25, 20));
+        assertEquals(COLOR, getPixel(15, 10));
+        assertEquals(COLOR, getPixel(39, 20));
+    }
+
+    private int getPixel(int x, int y) {
+        int[] result = new int[1];
+        display.edit(canvas -> result[0] = canvas.getPixel(x, y));
+        return result[0];
+    }
+
+    private int countPixels() {
+        int[] result = new int[1];
+        display.edit(canvas -> {
+            for (int y = 0; y < canvas.getHeight(); y++) {
+                for (int x = 0; x < canvas.getWidth(); x++) {
+                    if (canvas.getPixel(x, y) != 0) {
+                        result[0]++;
+                    }
+                }
+            }
+        });
+        return result[0];
+    }
+}
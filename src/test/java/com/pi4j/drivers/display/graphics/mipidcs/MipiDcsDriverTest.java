@@ -0,0 +1,224 @@
+package com.pi4j.drivers.display.graphics.mipidcs;
+
+import com.pi4j.drivers.display.graphics.GraphicsDisplay;
+import com.pi4j.drivers.display.graphics.PixelFormat;
+import com.pi4j.drivers.display.graphics.spi.FakeSpi;
+import com.pi4j.io.gpio.digital.DigitalInput;
+import com.pi4j.io.gpio.digital.DigitalOutput;
+import com.pi4j.io.gpio.digital.DigitalState;
+import com.pi4j.io.gpio.digital.DigitalStateChangeEvent;
+import com.pi4j.io.gpio.digital.DigitalStateChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Checks the command stream sent to the controller, without hardware. */
+public class MipiDcsDriverTest {
+
+    /** Four bytes of RGB_565 pixel data, i.e. two pixels. */
+    private static final byte[] PIXELS = { 1, 2, 3, 4 };
+
+    /**
+     * Records the commands sent via a fake SPI device and DC pin. Each command is recorded as a hex string of the
+     * command code, followed by its parameters or data, e.g. "2a 00000001". Writes of up to 64 bytes are sent
+     * synchronously, so the stream is complete when the driver methods return.
+     */
+    private static class CommandRecorder {
+        final FakeSpi fakeSpi = new FakeSpi();
+        final List<StringBuilder> commands = new ArrayList<>();
+        final DigitalOutput dc;
+        boolean data;
+
+        CommandRecorder() {
+            dc = (DigitalOutput) Proxy.newProxyInstance(
+                    DigitalOutput.class.getClassLoader(), new Class<?>[] { DigitalOutput.class },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "on" -> data = true;
+                            case "off" -> data = false;
+                        }
+                        return method.getReturnType().isInstance(proxy) ? proxy : null;
+                    });
+            fakeSpi.setWriteListener(bytes -> {
+                String hex = HexFormat.of().formatHex(bytes);
+                if (data) {
+                    commands.get(commands.size() - 1).append(hex);
+                } else {
+                    commands.add(new StringBuilder(hex).append(' '));
+                }
+            });
+        }
+
+        /** Returns the commands recorded since the last call, with trailing spaces of commands without data removed. */
+        List<String> takeCommands() {
+            List<String> result = new ArrayList<>();
+            for (StringBuilder command : commands) {
+                result.add(command.toString().trim());
+            }
+            commands.clear();
+            return result;
+        }
+
+        MipiDcsDriver.Builder builder(MipiDcsController controller) {
+            return new MipiDcsDriver.Builder(fakeSpi.getSpi(), dc, controller).maxTransferSize(4096);
+        }
+    }
+
+    /** A TE input notifying the listeners registered by the driver of the state changes fired by the test. */
+    private static class FakeTearingEffectInput {
+        final List<DigitalStateChangeListener> listeners = new CopyOnWriteArrayList<>();
+        final DigitalInput input = (DigitalInput) Proxy.newProxyInstance(
+                DigitalInput.class.getClassLoader(), new Class<?>[] { DigitalInput.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addListener" -> listeners.addAll(Arrays.asList((DigitalStateChangeListener[]) args[0]));
+                        case "removeListener" ->
+                                listeners.removeAll(Arrays.asList((DigitalStateChangeListener[]) args[0]));
+                    }
+                    return method.getReturnType().isInstance(proxy) ? proxy : null;
+                });
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        void fire(DigitalState state) {
+            for (DigitalStateChangeListener listener : listeners) {
+                listener.onDigitalStateChange(new DigitalStateChangeEvent(input, state));
+            }
+        }
+    }
+
+    /** Runs startFrame() on another thread and checks that it returns on the next rising edge of the TE input. */
+    private static void assertFrameWaitsForPulse(MipiDcsDriver driver, FakeTearingEffectInput te)
+            throws InterruptedException {
+        Thread frame = new Thread(driver::startFrame);
+        frame.start();
+        while (frame.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(frame.isAlive(), "startFrame() returned without waiting");
+            Thread.onSpinWait();
+        }
+        te.fire(DigitalState.LOW);
+        assertTrue(frame.isAlive(), "startFrame() returned on a falling edge");
+        te.fire(DigitalState.HIGH);
+        frame.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(frame.isAlive());
+        // The pulse arrived within the timeout, so the following frames are still synchronized.
+        assertTrue(driver.synchronizesFrames());
+    }
+
+    @Test
+    public void testTearingEffect() throws InterruptedException {
+        CommandRecorder recorder = new CommandRecorder();
+        FakeTearingEffectInput te = new FakeTearingEffectInput();
+        MipiDcsDriver driver = recorder.builder(MipiDcsController.ST7789).tearingEffectInput(te.input).build();
+        List<String> init = recorder.takeCommands();
+        assertTrue(init.contains("35 00"), init.toString());
+        assertEquals(1, te.listeners.size());
+        assertTrue(driver.synchronizesFrames());
+
+        assertFrameWaitsForPulse(driver, te);
+
+        // Without pulses, the frame times out and the following frames don't wait anymore.
+        long start = System.nanoTime();
+        driver.startFrame();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertFalse(driver.synchronizesFrames());
+        start = System.nanoTime();
+        driver.startFrame();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(40));
+
+        // The next pulse resumes the synchronization.
+        te.fire(DigitalState.HIGH);
+        assertTrue(driver.synchronizesFrames());
+        assertFrameWaitsForPulse(driver, te);
+
+        // Waiting doesn't send any commands.
+        assertEquals(List.of(), recorder.takeCommands());
+    }
+
+    /** Without a TE input, frames are sent without waiting and TEON isn't sent. */
+    @Test
+    public void testWithoutTearingEffect() {
+        CommandRecorder recorder = new CommandRecorder();
+        MipiDcsDriver driver = recorder.builder(MipiDcsController.ST7789).build();
+        assertFalse(recorder.takeCommands().stream().anyMatch(command -> command.startsWith("35")));
+        assertFalse(driver.synchronizesFrames());
+        driver.startFrame();
+    }
+
+    @Test
+    public void testSt7789Rotate0() {
+        CommandRecorder recorder = new CommandRecorder();
+        MipiDcsDriver driver = recorder.builder(MipiDcsController.ST7789).build();
+        List<String> init = recorder.takeCommands();
+        assertTrue(init.contains("3a 55"), init.toString());
+        assertTrue(init.contains("36 c0"), init.toString());
+        assertEquals("29", init.get(init.size() - 1));
+        assertEquals(240, driver.getDisplayInfo().getWidth());
+        assertEquals(240, driver.getDisplayInfo().getHeight());
+
+        // With MY set, the 240 visible rows are the last ones of the 320 rows of memory.
+        driver.setPixels(0, 0, 2, 1, PIXELS);
+        assertEquals(List.of("2a 00000001", "2b 0050013f", "2c 01020304"), recorder.takeCommands());
+
+        // The next row continues the previous write.
+        driver.setPixels(0, 1, 2, 1, PIXELS);
+        assertEquals(List.of("3c 01020304"), recorder.takeCommands());
+    }
+
+    @Test
+    public void testSt7789Rotations() {
+        CommandRecorder recorder = new CommandRecorder();
+        MipiDcsDriver driver = recorder.builder(MipiDcsController.ST7789).build();
+        String[] expectedMadctl = { "36 c0", "36 a0", "36 00", "36 60" };
+        String[] expectedColumns = { "2a 00000001", "2a 00500051", "2a 00000001", "2a 00000001" };
+        String[] expectedRows = { "2b 0050013f", "2b 000000ef", "2b 000000ef", "2b 000000ef" };
+        for (GraphicsDisplay.Rotation rotation : GraphicsDisplay.Rotation.values()) {
+            recorder.takeCommands();
+            driver.setRotation(rotation);
+            driver.setPixels(0, 0, 2, 1, PIXELS);
+            int i = rotation.ordinal();
+            assertEquals(List.of(expectedMadctl[i], expectedColumns[i], expectedRows[i], "2c 01020304"),
+                    recorder.takeCommands(), rotation.toString());
+        }
+    }
+
+    /** The ST7735 shows 128x160 of its 132x162 memory at an offset and doesn't support RAMWRC. */
+    @Test
+    public void testSt7735() {
+        CommandRecorder recorder = new CommandRecorder();
+        MipiDcsDriver driver = recorder.builder(MipiDcsController.ST7735).build();
+        assertTrue(recorder.takeCommands().contains("36 c8"));
+        assertEquals(128, driver.getDisplayInfo().getWidth());
+        assertEquals(160, driver.getDisplayInfo().getHeight());
+
+        driver.setPixels(0, 0, 2, 1, PIXELS);
+        assertEquals(List.of("2a 00020003", "2b 000100a0", "2c 01020304"), recorder.takeCommands());
+
+        // The next row needs a new row window and RAMWR instead of RAMWRC; the columns are unchanged.
+        driver.setPixels(0, 1, 2, 1, PIXELS);
+        assertEquals(List.of("2b 000200a0", "2c 01020304"), recorder.takeCommands());
+
+        // Rotated by 90 degrees, the row offset applies to the columns and vice versa.
+        driver.setRotation(GraphicsDisplay.Rotation.ROTATE_90);
+        assertEquals(160, driver.getDisplayInfo().getWidth());
+        assertEquals(128, driver.getDisplayInfo().getHeight());
+        driver.setPixels(0, 0, 2, 1, PIXELS);
+        assertEquals(List.of("36 a8", "2a 00010002", "2b 00020081", "2c 01020304"), recorder.takeCommands());
+    }
+
+    @Test
+    public void testPixelFormat() {
+        CommandRecorder recorder = new CommandRecorder();
+        recorder.builder(MipiDcsController.ST7789).pixelFormat(PixelFormat.RGB_444).build();
+        assertTrue(recorder.takeCommands().contains("3a 53"));
+    }
+}
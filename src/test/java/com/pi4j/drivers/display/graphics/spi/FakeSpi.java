@@ -0,0 +1,92 @@
+package com.pi4j.drivers.display.graphics.spi;
+
+import com.pi4j.io.spi.Spi;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Records the data written to an SPI device. The device is a dynamic proxy, as drivers only use the write methods;
+ * all other methods return default values.
+ */
+public class FakeSpi implements InvocationHandler {
+
+    private final Spi spi = (Spi) Proxy.newProxyInstance(
+            Spi.class.getClassLoader(), new Class<?>[] { Spi.class }, this);
+    private final List<byte[]> writes = new ArrayList<>();
+    private volatile Consumer<byte[]> writeListener = data -> {};
+
+    /** The SPI device writing to this fake. */
+    public Spi getSpi() {
+        return spi;
+    }
+
+    /**
+     * Sets a listener called with the data of each write before it is recorded, for instance to block the
+     * transfer or to throw an exception. Writes are not recorded if the listener throws.
+     */
+    public void setWriteListener(Consumer<byte[]> writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    /** Returns a copy of the data of all recorded writes, in order. */
+    public synchronized List<byte[]> getWrites() {
+        return new ArrayList<>(writes);
+    }
+
+    /** Returns the concatenated data of all recorded writes. */
+    public synchronized byte[] getData() {
+        int size = 0;
+        for (byte[] write : writes) {
+            size += write.length;
+        }
+        byte[] result = new byte[size];
+        int offset = 0;
+        for (byte[] write : writes) {
+            System.arraycopy(write, 0, result, offset, write.length);
+            offset += write.length;
+        }
+        return result;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "write" -> {
+                byte[] data;
+                if (args[0] instanceof Number value) {
+                    data = new byte[] { value.byteValue() };
+                } else {
+                    byte[] src = (byte[]) args[0];
+                    int offset = args.length == 3 ? (Integer) args[1] : 0;
+                    int length = args.length == 3 ? (Integer) args[2]
+                            : args.length == 2 ? (Integer) args[1] : src.length;
+                    data = Arrays.copyOfRange(src, offset, offset + length);
+                }
+                writeListener.accept(data);
+                synchronized (this) {
+                    writes.add(data);
+                }
+                return data.length;
+            }
+            case "toString" -> {
+                return "FakeSpi";
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+        }
+        Class<?> type = method.getReturnType();
+        // The default value of primitive types is the element of a new array.
+        return type.isPrimitive() && type != void.class ? Array.get(Array.newInstance(type, 1), 0) : null;
+    }
+}
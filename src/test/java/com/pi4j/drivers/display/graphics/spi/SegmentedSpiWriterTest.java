@@ -0,0 +1,114 @@
+package com.pi4j.drivers.display.graphics.spi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentedSpiWriterTest {
+
+    private static byte[] sequence(int start, int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (start + i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testSegments() {
+        FakeSpi fakeSpi = new FakeSpi();
+        byte[] data = sequence(0, 250);
+        try (SegmentedSpiWriter writer = new SegmentedSpiWriter(fakeSpi.getSpi(), 100)) {
+            writer.write(data, 0, data.length);
+            writer.sync();
+        }
+
+        List<byte[]> writes = fakeSpi.getWrites();
+        assertEquals(3, writes.size());
+        assertArrayEquals(sequence(0, 100), writes.get(0));
+        assertArrayEquals(sequence(100, 100), writes.get(1));
+        assertArrayEquals(sequence(200, 50), writes.get(2));
+    }
+
+    /** A small write must not overtake segments that are still queued. */
+    @Test
+    public void testSmallWriteAfterQueuedSegments() throws InterruptedException {
+        FakeSpi fakeSpi = new FakeSpi();
+        CountDownLatch release = new CountDownLatch(1);
+        fakeSpi.setWriteListener(data -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try (SegmentedSpiWriter writer = new SegmentedSpiWriter(fakeSpi.getSpi(), 100, 4)) {
+            writer.write(sequence(0, 250), 0, 250);
+            writer.write(new byte[] { 42 }, 0, 1);
+            assertEquals(0, fakeSpi.getWrites().size());
+
+            release.countDown();
+            writer.sync();
+        }
+
+        List<byte[]> writes = fakeSpi.getWrites();
+        assertEquals(4, writes.size());
+        assertArrayEquals(sequence(200, 50), writes.get(2));
+        assertArrayEquals(new byte[] { 42 }, writes.get(3));
+    }
+
+    /** An exception on the transfer thread is rethrown by sync() and the remaining segments are dropped. */
+    @Test
+    public void testTransferFailure() {
+        FakeSpi fakeSpi = new FakeSpi();
+        RuntimeException failure = new RuntimeException("SPI failure");
+        AtomicInteger transferCount = new AtomicInteger();
+        fakeSpi.setWriteListener(data -> {
+            if (transferCount.incrementAndGet() == 2) {
+                throw failure;
+            }
+        });
+        try (SegmentedSpiWriter writer = new SegmentedSpiWriter(fakeSpi.getSpi(), 100)) {
+            writer.write(sequence(0, 300), 0, 300);
+            assertSame(failure, assertThrows(RuntimeException.class, writer::sync));
+            assertEquals(1, fakeSpi.getWrites().size());
+            assertEquals(2, transferCount.get());
+
+            // The failure is only reported once; later writes are transferred again.
+            writer.write(sequence(0, 200), 0, 200);
+            writer.sync();
+            assertEquals(3, fakeSpi.getWrites().size());
+        }
+    }
+
+    @Test
+    public void testBytesPerSecond() {
+        FakeSpi fakeSpi = new FakeSpi();
+        fakeSpi.setWriteListener(data -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try (SegmentedSpiWriter writer = new SegmentedSpiWriter(fakeSpi.getSpi(), 1000)) {
+            assertEquals(0, writer.getBytesPerSecond(), 0);
+
+            writer.write(new byte[3000], 0, 3000);
+            writer.sync();
+
+            assertEquals(3000, writer.getByteCount());
+            // Each transfer of 1000 bytes takes at least 10ms.
+            double bytesPerSecond = writer.getBytesPerSecond();
+            assertTrue(bytesPerSecond > 0 && bytesPerSecond <= 100_000, "bytesPerSecond: " + bytesPerSecond);
+        }
+    }
+}